@@ -36,6 +36,7 @@ import cubrid.jdbc.jci.UConnection;
 import cubrid.jdbc.jci.UError;
 import cubrid.jdbc.jci.UErrorCode;
 import cubrid.jdbc.jci.UPreparedStatementCache;
+import cubrid.jdbc.jci.UPreparedStatementKey;
 import cubrid.jdbc.jci.UStatement;
 import java.sql.Array;
 import java.sql.Blob;
@@ -89,7 +90,8 @@ public class CUBRIDConnection implements Connection {
     protected CUBRIDShardMetaData shard_mdata;
     protected ArrayList<CUBRIDOutResultSet> outRs;
     private boolean isAutoGeneratedKeys = false;
-    protected UPreparedStatementCache<String, PreparedStatement> prepStmtCache;
+    protected UPreparedStatementCache<UPreparedStatementKey, CUBRIDPreparedStatement>
+            prepStmtCache;
 
     /*
      * 3.0 ArrayList savepoints; int sv_count, sv_id; String sv_name; private
@@ -112,8 +114,13 @@ public class CUBRIDConnection implements Connection {
         outRs = new ArrayList<CUBRIDOutResultSet>();
         shard_mdata = null;
         prepStmtCache =
-                new UPreparedStatementCache<String, PreparedStatement>(
-                        u_con.getPrepStmtCacheSize());
+                new UPreparedStatementCache<UPreparedStatementKey, CUBRIDPreparedStatement>(
+                        u_con.getPrepStmtCacheSize()) {
+                    protected void evicted(
+                            UPreparedStatementKey key, CUBRIDPreparedStatement pstmt) {
+                        pstmt.closeEvicted();
+                    }
+                };
 
         /*
          * 3.0 savepoints = new ArrayList(); sv_count = 0; sv_name = "";
@@ -276,11 +283,12 @@ public class CUBRIDConnection implements Connection {
 
     public synchronized void setReadOnly(boolean readOnly) throws SQLException {
         checkIsOpen();
+        u_con.setReadOnly(readOnly);
     }
 
     public synchronized boolean isReadOnly() throws SQLException {
         checkIsOpen();
-        return false;
+        return u_con.isReadOnly();
     }
 
     public synchronized void setCatalog(String catalog) throws SQLException {
@@ -702,13 +710,14 @@ public class CUBRIDConnection implements Connection {
     }
 
     protected void clear() throws SQLException {
-        closeAllStatements();
-        closeAllOutResultSet();
-
+        /* cached statements ignore close() while they are in the cache */
         if (prepStmtCache != null) {
             prepStmtCache.clear();
         }
 
+        closeAllStatements();
+        closeAllOutResultSet();
+
         if (mdata != null) {
             mdata.close();
             mdata = null;
@@ -820,7 +829,8 @@ public class CUBRIDConnection implements Connection {
             int resultHoldability,
             int autoGeneratedKeys)
             throws SQLException {
-        PreparedStatement pstmtCache = null;
+        CUBRIDPreparedStatement pstmtCache = null;
+        UPreparedStatementKey cacheKey = null;
 
         checkIsOpen();
 
@@ -836,14 +846,22 @@ public class CUBRIDConnection implements Connection {
         }
 
         if (u_con.isPrepStmtCache(sql)) {
-            pstmtCache = prepStmtCache.get(sql);
+            cacheKey =
+                    new UPreparedStatementKey(
+                            sql,
+                            resultSetType,
+                            resultSetConcurrency,
+                            resultHoldability,
+                            autoGeneratedKeys);
+            pstmtCache = prepStmtCache.get(cacheKey);
             if (pstmtCache != null) {
+                pstmtCache.cache_checkouts.incrementAndGet();
                 return pstmtCache;
             }
         }
 
         UStatement us = prepare(sql, prepareFlag);
-        PreparedStatement pstmt =
+        CUBRIDPreparedStatement pstmt =
                 new CUBRIDPreparedStatement(
                         this,
                         us,
@@ -853,8 +871,10 @@ public class CUBRIDConnection implements Connection {
                         autoGeneratedKeys);
         addStatement(pstmt);
 
-        if (u_con.isPrepStmtCache(sql)) {
-            prepStmtCache.put(sql, pstmt);
+        if (cacheKey != null) {
+            pstmt.cache_key = cacheKey;
+            pstmt.cache_checkouts.set(1);
+            prepStmtCache.put(cacheKey, pstmt);
         }
         return pstmt;
     }
@@ -940,6 +960,19 @@ public class CUBRIDConnection implements Connection {
         return isShard;
     }
 
+    /* counters of the prepared statement cache (usePreparedStmtCache=true) */
+    public long getPrepStmtCacheHitCount() {
+        return prepStmtCache.getHitCount();
+    }
+
+    public long getPrepStmtCacheMissCount() {
+        return prepStmtCache.getMissCount();
+    }
+
+    public long getPrepStmtCacheEvictionCount() {
+        return prepStmtCache.getEvictionCount();
+    }
+
     /*
      * 3.0 private int createSavepointId() throws SQLException { int tempid=0;
      * do { Random r = new Random(); tempid = Math.abs(r.nextInt()) % 1000000 +
@@ -48,7 +48,6 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.logging.Logger;
@@ -256,18 +255,18 @@ public class CUBRIDDriver implements Driver {
         connProperties.setProperties(info);
 
         dummy = connProperties.getAltHosts();
-        if (dummy != null) {
+        String replicas = connProperties.getReplicaHosts();
+        if (dummy != null || replicas != null) {
             ArrayList<String> altHostList = new ArrayList<String>();
             altHostList.add(host + ":" + port);
 
-            StringTokenizer st = new StringTokenizer(dummy, ",", false);
-            while (st.hasMoreTokens()) {
-                altHostList.add(st.nextToken());
+            if (dummy != null) {
+                StringTokenizer st = new StringTokenizer(dummy, ",", false);
+                while (st.hasMoreTokens()) {
+                    altHostList.add(st.nextToken());
+                }
             }
 
-            if (connProperties.getConnLoadBal()) {
-                Collections.shuffle(altHostList);
-            }
             try {
                 u_con =
                         (UClientSideConnection)
@@ -289,6 +288,15 @@ public class CUBRIDDriver implements Driver {
         u_con.setZeroDateTimeBehavior(connProperties.getZeroDateTimeBehavior());
         u_con.setResultWithCUBRIDTypes(connProperties.getResultWithCUBRIDTypes());
 
+        if (replicas != null) {
+            ArrayList<String> replicaHostList = new ArrayList<String>();
+            StringTokenizer st = new StringTokenizer(replicas, ",", false);
+            while (st.hasMoreTokens()) {
+                replicaHostList.add(st.nextToken());
+            }
+            u_con.setReplicaHosts(replicaHostList);
+        }
+
         u_con.setConnectionProperties(connProperties);
         u_con.tryConnect();
 
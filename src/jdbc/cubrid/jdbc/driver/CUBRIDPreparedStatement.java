@@ -35,6 +35,7 @@ import cubrid.jdbc.jci.CUBRIDCommandType;
 import cubrid.jdbc.jci.UBatchResult;
 import cubrid.jdbc.jci.UColumnInfo;
 import cubrid.jdbc.jci.UErrorCode;
+import cubrid.jdbc.jci.UPreparedStatementKey;
 import cubrid.jdbc.jci.UShardInfo;
 import cubrid.jdbc.jci.UStatement;
 import cubrid.sql.CUBRIDOID;
@@ -63,6 +64,7 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Title: CUBRID JDBC Driver Description:
@@ -74,6 +76,10 @@ public class CUBRIDPreparedStatement extends CUBRIDStatement implements Prepared
 
     private boolean first_result_type;
 
+    /* set while the statement is shared through the connection's cache */
+    UPreparedStatementKey cache_key;
+    final AtomicInteger cache_checkouts = new AtomicInteger();
+
     protected CUBRIDPreparedStatement(
             CUBRIDConnection c, UStatement us, int t, int concur, int hold, int autoGeneratedKeys) {
         super(c, t, concur, hold);
@@ -723,10 +729,9 @@ public class CUBRIDPreparedStatement extends CUBRIDStatement implements Prepared
                 synchronized (this) {
                     setShardId(UShardInfo.SHARD_ID_INVALID);
 
-                    if (u_stmt != null) {
-                        String sql = "";
-                        sql = u_stmt.getQuery();
-                        if (con.prepStmtCache.get(sql) != null) {
+                    if (u_stmt != null && cache_key != null) {
+                        decrementCheckouts();
+                        if (con.prepStmtCache.isCached(cache_key, this)) {
                             return;
                         }
                     }
@@ -751,6 +756,26 @@ public class CUBRIDPreparedStatement extends CUBRIDStatement implements Prepared
         }
     }
 
+    private void decrementCheckouts() {
+        int n;
+        do {
+            n = cache_checkouts.get();
+        } while (n > 0 && !cache_checkouts.compareAndSet(n, n - 1));
+    }
+
+    /* closes a statement pushed out of the cache unless a caller still holds it */
+    void closeEvicted() {
+        cache_key = null;
+        if (cache_checkouts.get() > 0) {
+            return;
+        }
+        try {
+            close();
+        } catch (SQLException e) {
+            /* the statement is unreachable through the cache anyway */
+        }
+    }
+
     public synchronized void clearBatch() throws SQLException {
         checkIsOpen();
 
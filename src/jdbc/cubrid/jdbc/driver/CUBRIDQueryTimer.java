@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.driver;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Driver-wide hashed timer wheel for statement query timeouts. Scheduling
+ * and cancelling a timeout is O(1) under a short lock. One daemon thread
+ * advances the wheel and hands expired timeouts to a pool of cancel threads,
+ * so a slow cancel request never delays the other timeouts.
+ */
+class CUBRIDQueryTimer implements Runnable {
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512; /* must be a power of two */
+
+    private static CUBRIDQueryTimer instance;
+
+    private final Timeout[] wheel = new Timeout[WHEEL_SIZE];
+    private final long startTime = System.nanoTime();
+    private long processedTick = 0;
+    private int pending = 0;
+    private Thread worker;
+    private ExecutorService dispatcher;
+
+    static synchronized CUBRIDQueryTimer getInstance() {
+        if (instance == null) {
+            instance = new CUBRIDQueryTimer();
+        }
+        return instance;
+    }
+
+    /* cancels stmt after timeout seconds unless queryended() is called first */
+    Timeout schedule(CUBRIDStatement stmt, int timeout) {
+        Timeout t = new Timeout(this, stmt);
+        long ticks = Math.max(1, (timeout * 1000L + TICK_MILLIS - 1) / TICK_MILLIS);
+
+        synchronized (this) {
+            long now = currentTick();
+            if (pending == 0) {
+                /* the worker was idle; nothing is due before now */
+                processedTick = now;
+            }
+            t.deadline = now + ticks;
+            link(t);
+            pending++;
+
+            if (worker == null) {
+                worker = new Thread(this, "CUBRID-QueryTimer");
+                worker.setDaemon(true);
+                worker.start();
+            }
+            notify();
+        }
+        return t;
+    }
+
+    public void run() {
+        while (true) {
+            ArrayList<Timeout> expired = new ArrayList<Timeout>();
+            synchronized (this) {
+                while (pending == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        /* keep serving the driver */
+                    }
+                }
+                long now = currentTick();
+                while (processedTick < now) {
+                    processedTick++;
+                    expire((int) (processedTick & (WHEEL_SIZE - 1)), expired);
+                }
+            }
+
+            for (int i = 0; i < expired.size(); i++) {
+                getDispatcher().execute(expired.get(i));
+            }
+
+            try {
+                Thread.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                /* keep serving the driver */
+            }
+        }
+    }
+
+    /* takes the due timeouts out of a slot; later rounds stay in place */
+    private void expire(int slot, ArrayList<Timeout> expired) {
+        Timeout t = wheel[slot];
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.deadline <= processedTick) {
+                unlink(t);
+                pending--;
+                expired.add(t);
+            }
+            t = next;
+        }
+    }
+
+    private synchronized void remove(Timeout t) {
+        if (t.slot >= 0) {
+            unlink(t);
+            pending--;
+        }
+    }
+
+    private void link(Timeout t) {
+        t.slot = (int) (t.deadline & (WHEEL_SIZE - 1));
+        t.prev = null;
+        t.next = wheel[t.slot];
+        if (t.next != null) {
+            t.next.prev = t;
+        }
+        wheel[t.slot] = t;
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            wheel[t.slot] = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = t.next = null;
+        t.slot = -1;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startTime) / (TICK_MILLIS * 1000000L);
+    }
+
+    private synchronized ExecutorService getDispatcher() {
+        if (dispatcher == null) {
+            dispatcher =
+                    Executors.newCachedThreadPool(
+                            new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "CUBRID-CancelQuery");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+        }
+        return dispatcher;
+    }
+
+    static class Timeout implements Runnable {
+        private final CUBRIDQueryTimer timer;
+        private final CUBRIDStatement stmt;
+        private boolean end = false;
+
+        /* guarded by timer */
+        private long deadline;
+        private int slot = -1;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(CUBRIDQueryTimer timer, CUBRIDStatement stmt) {
+            this.timer = timer;
+            this.stmt = stmt;
+        }
+
+        public void run() {
+            try {
+                synchronized (this) {
+                    if (end == false) {
+                        stmt.cancel();
+                    }
+                }
+            } catch (Exception e) {
+            }
+        }
+
+        /* waits for a cancel that is already running, so it cannot hit the next query */
+        synchronized void queryended() {
+            end = true;
+            timer.remove(this);
+        }
+    }
+}
@@ -36,6 +36,7 @@ import cubrid.jdbc.jci.UBatchResult;
 import cubrid.jdbc.jci.UConnection;
 import cubrid.jdbc.jci.UError;
 import cubrid.jdbc.jci.UErrorCode;
+import cubrid.jdbc.jci.UJCIUtil;
 import cubrid.jdbc.jci.UResCache;
 import cubrid.jdbc.jci.UResultInfo;
 import cubrid.jdbc.jci.UShardInfo;
@@ -145,9 +146,10 @@ public class CUBRIDStatement implements Statement {
                     if (!completed) {
                         complete();
                     }
-                    prepare(sql);
+                    /* only a SELECT is sure to pass the check below */
+                    prepare(sql, UJCIUtil.getLeadingKeyword(sql).equalsIgnoreCase("SELECT"));
 
-                    if (!u_stmt.getSqlType()) {
+                    if (u_stmt.isPrepared() && !u_stmt.getSqlType()) {
                         u_stmt.close();
                         u_stmt = null;
                         throw con.createCUBRIDException(
@@ -475,7 +477,7 @@ public class CUBRIDStatement implements Statement {
                     if (!completed) {
                         complete();
                     }
-                    prepare(sql);
+                    prepare(sql, autoGeneratedKeys == Statement.NO_GENERATED_KEYS);
                     this.autoGeneratedKeys = autoGeneratedKeys;
                     if (this.autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
                             && u_stmt.getCommandType() == CUBRIDCommandType.CUBRID_STMT_INSERT) {
@@ -537,9 +539,12 @@ public class CUBRIDStatement implements Statement {
                     if (!completed) {
                         complete();
                     }
-                    prepare(sql);
+                    prepare(
+                            sql,
+                            autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                                    && isDataManipulation(sql));
 
-                    if (u_stmt.getSqlType()) {
+                    if (u_stmt.isPrepared() && u_stmt.getSqlType()) {
                         u_stmt.close();
                         u_stmt = null;
                         throw con.createCUBRIDException(
@@ -776,15 +781,14 @@ public class CUBRIDStatement implements Statement {
     }
 
     protected CUBRIDOID executeInsertCore() throws SQLException {
-        CUBRIDCancelQueryThread t = null;
+        CUBRIDQueryTimer.Timeout t = null;
         completed = false;
         setCurrentTransaction(true);
 
         setShardId(UShardInfo.SHARD_ID_INVALID);
 
         if (query_timeout > 0) {
-            t = new CUBRIDCancelQueryThread(this, query_timeout);
-            t.start();
+            t = CUBRIDQueryTimer.getInstance().schedule(this, query_timeout);
         }
 
         CUBRIDOID oid = u_stmt.executeInsert(false);
@@ -852,20 +856,19 @@ public class CUBRIDStatement implements Statement {
 
     protected void executeCoreInternal(boolean all, UStatementCacheData cache_data)
             throws SQLException {
-        CUBRIDCancelQueryThread t = null;
+        CUBRIDQueryTimer.Timeout t = null;
 
         boolean is_holdable = false;
-        boolean isQueryCancelThreadStarted = false;
+        boolean isQueryTimerStarted = false;
 
         setShardId(UShardInfo.SHARD_ID_INVALID);
 
         if (query_timeout > 0
                 && (u_con.isConnectedToCubrid() == false
                         || u_con.protoVersionIsAbove(1) == false)) {
-            t = new CUBRIDCancelQueryThread(this, query_timeout);
-            t.start();
+            t = CUBRIDQueryTimer.getInstance().schedule(this, query_timeout);
 
-            isQueryCancelThreadStarted = true;
+            isQueryTimerStarted = true;
         }
 
         if (getResultSetHoldability() == ResultSet.HOLD_CURSORS_OVER_COMMIT) is_holdable = true;
@@ -884,7 +887,7 @@ public class CUBRIDStatement implements Statement {
                 query_timeout);
         setShardId(u_con.getShardId());
 
-        if (isQueryCancelThreadStarted) {
+        if (isQueryTimerStarted) {
             t.queryended();
         }
 
@@ -981,6 +984,15 @@ public class CUBRIDStatement implements Statement {
     }
 
     private void prepare(String sql) throws SQLException {
+        prepare(sql, false);
+    }
+
+    /*
+     * If onExecute is set and the broker supports it, the statement is sent
+     * with its first execution in one request instead of being prepared now.
+     * The caller must not look at the statement type before executeCore().
+     */
+    private void prepare(String sql, boolean onExecute) throws SQLException {
         byte prepareFlag = (byte) 0;
 
         if (is_updatable || is_sensitive) {
@@ -992,9 +1004,23 @@ public class CUBRIDStatement implements Statement {
         if (is_holdable) {
             prepareFlag |= UConnection.PREPARE_HOLDABLE;
         }
+        if (onExecute && !query_info_flag && !only_query_plan && u_con.usePrepareAndExecute()) {
+            u_stmt = u_con.prepareOnExecute(sql, prepareFlag);
+            return;
+        }
         u_stmt = con.prepare(sql, prepareFlag);
     }
 
+    /* statements that pass the executeUpdate() check without being prepared */
+    private static boolean isDataManipulation(String sql) {
+        String keyword = UJCIUtil.getLeadingKeyword(sql);
+        return keyword.equalsIgnoreCase("INSERT")
+                || keyword.equalsIgnoreCase("UPDATE")
+                || keyword.equalsIgnoreCase("DELETE")
+                || keyword.equalsIgnoreCase("MERGE")
+                || keyword.equalsIgnoreCase("REPLACE");
+    }
+
     private void checkExecuteError() throws SQLException {
         switch (error.getErrorCode()) {
             case UErrorCode.ER_NO_ERROR:
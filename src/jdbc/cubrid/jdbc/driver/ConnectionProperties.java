@@ -371,6 +371,25 @@ public class ConnectionProperties {
 
     BooleanConnectionProperty connLoadBal = new BooleanConnectionProperty("loadBalance", false);
 
+    StringConnectionProperty loadBalanceWeights =
+            new StringConnectionProperty("loadBalanceWeights", null);
+
+    StringConnectionProperty replicaHosts = new StringConnectionProperty("replicaHosts", null);
+
+    StringConnectionProperty replicaWeights = new StringConnectionProperty("replicaWeights", null);
+
+    IntegerConnectionProperty parallelConnectDelay =
+            new IntegerConnectionProperty("parallelConnectDelay", 0, 0, 60000);
+
+    IntegerConnectionProperty validationWindow =
+            new IntegerConnectionProperty("validationWindow", 0, 0, 3600000);
+
+    IntegerConnectionProperty connectConcurrency =
+            new IntegerConnectionProperty("connectConcurrency", 0, 0, 1024);
+
+    IntegerConnectionProperty connectRate =
+            new IntegerConnectionProperty("connectRate", 0, 0, 100000);
+
     ZeroDateTimeBehaviorConnectionProperty zeroDateTimeBehavior =
             new ZeroDateTimeBehaviorConnectionProperty(
                     "zeroDateTimeBehavior", UConnection.ZERO_DATETIME_BEHAVIOR_EXCEPTION);
@@ -390,9 +409,24 @@ public class ConnectionProperties {
 
     BooleanConnectionProperty useSSL = new BooleanConnectionProperty("useSSL", false);
 
+    BooleanConnectionProperty useSocketChannel =
+            new BooleanConnectionProperty("useSocketChannel", false);
+
     IntegerConnectionProperty clientCacheSize =
             new IntegerConnectionProperty("clientCacheSize", 1, 1, 1024);
 
+    IntegerConnectionProperty recvBufferPoolSize =
+            new IntegerConnectionProperty("recvBufferPoolSize", 4, 0, 1024);
+
+    IntegerConnectionProperty streamingFetchWindowSize =
+            new IntegerConnectionProperty("streamingFetchWindowSize", 0, 0, 65536);
+
+    BooleanConnectionProperty useLazyDecoding =
+            new BooleanConnectionProperty("useLazyDecoding", false);
+
+    BooleanConnectionProperty usePrepareAndExecute =
+            new BooleanConnectionProperty("usePrepareAndExecute", false);
+
     BooleanConnectionProperty holdCursor = new BooleanConnectionProperty("hold_cursor", true);
 
     BooleanConnectionProperty usePreparedStmtCache =
@@ -444,6 +478,34 @@ public class ConnectionProperties {
         return connLoadBal.getValueAsBoolean();
     }
 
+    public String getLoadBalanceWeights() {
+        return loadBalanceWeights.getValueAsString();
+    }
+
+    public String getReplicaHosts() {
+        return replicaHosts.getValueAsString();
+    }
+
+    public String getReplicaWeights() {
+        return replicaWeights.getValueAsString();
+    }
+
+    public int getParallelConnectDelay() {
+        return parallelConnectDelay.getValueAsInteger();
+    }
+
+    public int getValidationWindow() {
+        return validationWindow.getValueAsInteger();
+    }
+
+    public int getConnectConcurrency() {
+        return connectConcurrency.getValueAsInteger();
+    }
+
+    public int getConnectRate() {
+        return connectRate.getValueAsInteger();
+    }
+
     public String getZeroDateTimeBehavior() {
         return zeroDateTimeBehavior.getValueAsString();
     }
@@ -468,10 +530,30 @@ public class ConnectionProperties {
         return useSSL.getValueAsBoolean();
     }
 
+    public boolean getUseSocketChannel() {
+        return useSocketChannel.getValueAsBoolean();
+    }
+
     public int getClientCacheSize() {
         return clientCacheSize.getValueAsInteger();
     }
 
+    public int getRecvBufferPoolSize() {
+        return recvBufferPoolSize.getValueAsInteger();
+    }
+
+    public int getStreamingFetchWindowSize() {
+        return streamingFetchWindowSize.getValueAsInteger();
+    }
+
+    public boolean getUseLazyDecoding() {
+        return useLazyDecoding.getValueAsBoolean();
+    }
+
+    public boolean getUsePrepareAndExecute() {
+        return usePrepareAndExecute.getValueAsBoolean();
+    }
+
     public int getHoldCursor() {
         int holdability = ResultSet.HOLD_CURSORS_OVER_COMMIT;
         if (holdCursor.getValueAsBoolean() == false) {
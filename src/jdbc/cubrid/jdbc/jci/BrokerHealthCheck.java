@@ -37,22 +37,15 @@ public class BrokerHealthCheck extends Thread {
     public static final int MONITORING_INTERVAL = 60000;
 
     public void run() {
-        long startTime, elapseTime;
         UUnreachableHostList unreachableHosts = UUnreachableHostList.getInstance();
 
         while (true) {
-            startTime = System.currentTimeMillis();
-
             unreachableHosts.checkReachability(BROKER_HEALTH_CHECK_TIMEOUT);
 
-            elapseTime = System.currentTimeMillis() - startTime;
-
-            if (elapseTime < MONITORING_INTERVAL) {
-                try {
-                    Thread.sleep(MONITORING_INTERVAL - elapseTime);
-                } catch (InterruptedException e) {
-                    // do nothing
-                }
+            try {
+                unreachableHosts.awaitNextCheck(MONITORING_INTERVAL);
+            } catch (InterruptedException e) {
+                // do nothing
             }
         }
     }
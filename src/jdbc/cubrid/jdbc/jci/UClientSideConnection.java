@@ -44,12 +44,18 @@ import cubrid.jdbc.driver.CUBRIDDriver;
 import cubrid.jdbc.driver.CUBRIDException;
 import cubrid.jdbc.driver.CUBRIDJDBCErrorCode;
 import cubrid.jdbc.driver.CUBRIDJdbcInfoTable;
-import cubrid.jdbc.net.BrokerHandler;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class UClientSideConnection extends UConnection {
 
@@ -57,6 +63,34 @@ public class UClientSideConnection extends UConnection {
     private int connectedHostId = 0;
 
     private long lastFailureTime = 0;
+    private Map<String, Integer> hostWeights = null;
+
+    /* connection to the primary host being opened in the background */
+    private UConnectAttempt failbackAttempt = null;
+    private Future<?> failbackTask = null;
+
+    /* hosts serving read-only connections */
+    private ArrayList<String> replicaHosts = null;
+    private boolean routedReadOnly = false;
+    private HostRoute otherRoute = null;
+    /* an idle connection of the other host list is closed after this */
+    private static final long ROUTE_IDLE_TIMEOUT = 60 * 1000;
+
+    /* host list and idle connection kept while the other host list is in use */
+    private static class HostRoute {
+        ArrayList<String> hosts;
+        Map<String, Integer> weights;
+        int connectedHostId;
+        long lastFailureTime;
+        UConnectAttempt connection;
+
+        /* null if there is no idle connection or it was closed */
+        synchronized UConnectAttempt takeConnection() {
+            UConnectAttempt idle = connection;
+            connection = null;
+            return idle;
+        }
+    }
 
     public UClientSideConnection(
             String ip, int port, String dbname, String user, String passwd, String url)
@@ -145,6 +179,143 @@ public class UClientSideConnection extends UConnection {
         }
     }
 
+    public void setReplicaHosts(ArrayList<String> replicaHostList) throws CUBRIDException {
+        if (replicaHostList.size() < 1) {
+            throw new CUBRIDException(UErrorCode.ER_INVALID_ARGUMENT);
+        }
+
+        replicaHosts = replicaHostList;
+        otherRoute = new HostRoute();
+        otherRoute.hosts = replicaHosts;
+    }
+
+    /* a transaction in progress is moved at its end by endTransaction() */
+    @Override
+    public synchronized void setReadOnly(boolean readOnly) {
+        super.setReadOnly(readOnly);
+        if (client == null || getCASInfoStatus() != CAS_INFO_STATUS_ACTIVE) {
+            switchRoute();
+        }
+    }
+
+    /*
+     * Moves to the host list matching the read-only mode. The connection
+     * in use is kept open for ROUTE_IDLE_TIMEOUT and is used again, with
+     * the statements prepared on it, when the mode changes back in time.
+     */
+    private void switchRoute() {
+        if (replicaHosts == null || routedReadOnly == readOnly) {
+            return;
+        }
+        if (client != null && !needReconnection && hasOpenResults()) {
+            /* moved at a later endTransaction() once the results are closed */
+            return;
+        }
+
+        cancelFailback();
+        HostRoute route = new HostRoute();
+        route.hosts = altHosts;
+        route.weights = hostWeights;
+        route.connectedHostId = connectedHostId;
+        route.lastFailureTime = lastFailureTime;
+        if (client != null && !needReconnection) {
+            try {
+                completePendingFetch();
+            } catch (UJciException e) {
+                /* the socket is closed and not kept for the route */
+            }
+        }
+        if (client != null && !needReconnection) {
+            route.connection = detachConnection();
+            scheduleIdleClose(route);
+        }
+
+        HostRoute next = otherRoute;
+        otherRoute = route;
+        routedReadOnly = readOnly;
+        altHosts = next.hosts;
+        hostWeights = next.weights;
+        connectedHostId = next.connectedHostId;
+        lastFailureTime = next.lastFailureTime;
+        needReconnection = true;
+
+        UConnectAttempt idle = next.takeConnection();
+        if (idle != null) {
+            /* a broken connection is found by check_cas() on the next request */
+            UError savedError = errorHandler;
+            try {
+                completeConnect(idle);
+            } catch (Exception e) {
+                logException(e);
+                clientSocketClose();
+            }
+            errorHandler = savedError;
+        }
+    }
+
+    private UConnectAttempt detachConnection() {
+        UConnectAttempt attempt = new UConnectAttempt(connectedHostId, casIp, casPort);
+        attempt.client = client;
+        attempt.transport = transport;
+        attempt.output = output;
+        attempt.input = input;
+
+        attempt.casInfo = casInfo;
+        attempt.casProcessId = casProcessId;
+        attempt.brokerInfo = brokerInfo;
+        attempt.brokerVersion = brokerVersion;
+        attempt.protocolVersion = protocolVersion;
+        attempt.casId = casId;
+        attempt.sessionId = sessionId.clone();
+        attempt.oldSessionId = oldSessionId;
+
+        /* statement handles and pending closes belong to the detached CAS */
+        attempt.closeHandles = deferred_close_handle;
+        attempt.closeCursors = deferred_cursor_close;
+        attempt.isolationLevel = currentIsolationLevel();
+        attempt.lockTimeout = getLockTimeout();
+        parkPooledUStatements();
+        deferred_close_handle = new UIntQueue();
+        deferred_cursor_close = new UIntQueue();
+        client = null;
+        transport = null;
+        lastRoundTripTime = 0;
+        return attempt;
+    }
+
+    private static ScheduledExecutorService routeTimer = null;
+
+    private static synchronized ScheduledExecutorService getRouteTimer() {
+        if (routeTimer == null) {
+            routeTimer =
+                    Executors.newSingleThreadScheduledExecutor(
+                            new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "CUBRID-RouteIdle");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+        }
+        return routeTimer;
+    }
+
+    /* gives the CAS back unless switchRoute() took the connection in the meantime */
+    private static void scheduleIdleClose(final HostRoute route) {
+        getRouteTimer()
+                .schedule(
+                        new Runnable() {
+                            public void run() {
+                                UConnectAttempt idle = route.takeConnection();
+                                if (idle != null) {
+                                    idle.close();
+                                }
+                            }
+                        },
+                        ROUTE_IDLE_TIMEOUT,
+                        TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public synchronized void setAutoCommit(boolean autoCommit) {
         if (lastAutoCommit != autoCommit) {
@@ -178,6 +349,11 @@ public class UClientSideConnection extends UConnection {
             clientSocketClose();
         }
 
+        if (needReconnection == true) {
+            /* a read-only change left pending by a broken transaction */
+            switchRoute();
+        }
+
         if (needReconnection == true) {
             reconnect();
             if (UJCIUtil.isSendAppInfo()) {
@@ -194,41 +370,58 @@ public class UClientSideConnection extends UConnection {
     }
 
     private void reconnect() throws IOException, UJciException {
+        int parallelConnectDelay = connectionProperties.getParallelConnectDelay();
+        if (altHosts != null && (routedReadOnly || connectionProperties.getConnLoadBal())) {
+            if (hostWeights == null) {
+                /* the weights are in the order of the host list in use */
+                String weightList =
+                        routedReadOnly
+                                ? connectionProperties.getReplicaWeights()
+                                : connectionProperties.getLoadBalanceWeights();
+                hostWeights = UHostStatistics.parseWeights(altHosts, weightList);
+            }
+            altHosts = UHostStatistics.getInstance().orderHosts(altHosts, hostWeights);
+        }
+
         if (altHosts == null) {
             reconnectWorker(getLoginEndTimestamp(getBeginTime()));
+        } else if (parallelConnectDelay > 0 && altHosts.size() > 1) {
+            reconnectParallel(parallelConnectDelay);
         } else {
             int retry = 0;
+            boolean admitted = false;
             UUnreachableHostList unreachableHosts = UUnreachableHostList.getInstance();
             boolean useSSL = connectionProperties.getUseSSL();
             unreachableHosts.setUseSSL(useSSL);
 
             do {
                 for (int hostId = 0; hostId < altHosts.size(); hostId++) {
+                    String host = altHosts.get(hostId);
                     /*
-                     * if all hosts turn out to be unreachable, ignore host
-                     * reachability and try one more time
+                     * if no host is admitted by its circuit breaker, ignore
+                     * host reachability and try one more time
                      */
-                    if (!unreachableHosts.contains(altHosts.get(hostId)) || retry == 1) {
+                    boolean acquired = retry == 0 && unreachableHosts.tryAcquire(host);
+                    if (retry == 1 || acquired) {
+                        admitted = true;
                         try {
                             setActiveHost(hostId);
                             reconnectWorker(getLoginEndTimestamp(System.currentTimeMillis()));
                             connectedHostId = hostId;
 
-                            unreachableHosts.remove(altHosts.get(hostId));
+                            unreachableHosts.recordSuccess(host);
 
                             return; // success to connect
                         } catch (IOException e) {
                             logException(e);
+                            if (acquired) unreachableHosts.release(host);
                             throw e;
                         } catch (UJciException e) {
                             logException(e);
-                            int errno = e.getJciError();
-                            if (errno == UErrorCode.ER_COMMUNICATION
-                                    || errno == UErrorCode.ER_CONNECTION
-                                    || errno == UErrorCode.ER_TIMEOUT
-                                    || errno == UErrorCode.CAS_ER_FREE_SERVER) {
-                                unreachableHosts.add(altHosts.get(hostId));
+                            if (isNetworkError(e)) {
+                                markUnreachable(host, e, acquired);
                             } else {
+                                if (acquired) unreachableHosts.release(host);
                                 throw e;
                             }
                         }
@@ -236,12 +429,39 @@ public class UClientSideConnection extends UConnection {
                     lastFailureTime = System.currentTimeMillis() / 1000;
                 }
                 retry++;
-            } while (retry < 2);
+            } while (retry < 2 && !admitted);
             // failed to connect to neither hosts
             throw createJciException(UErrorCode.ER_CONNECTION);
         }
     }
 
+    /* errors after which another host should be tried */
+    private static boolean isNetworkError(UJciException e) {
+        int errno = e.getJciError();
+        return errno == UErrorCode.ER_COMMUNICATION
+                || errno == UErrorCode.ER_CONNECTION
+                || errno == UErrorCode.ER_TIMEOUT
+                || errno == UErrorCode.CAS_ER_FREE_SERVER;
+    }
+
+    /* a refused or timed out connect opens the breaker, other failures count toward it */
+    private void markUnreachable(String host, Exception e, boolean acquired) {
+        if (e instanceof UConnectGovernor.WaitFailure) {
+            /* the handshake that failed while this one waited is counted already */
+            if (acquired) UUnreachableHostList.getInstance().release(host);
+            return;
+        }
+        int errno = e instanceof UJciException ? ((UJciException) e).getJciError() : 0;
+        if (e instanceof IOException
+                || errno == UErrorCode.ER_CONNECTION
+                || errno == UErrorCode.ER_TIMEOUT) {
+            UUnreachableHostList.getInstance().recordUnreachable(host);
+        } else {
+            UUnreachableHostList.getInstance().recordFailure(host);
+        }
+        UHostStatistics.getInstance().get(host).addFailure();
+    }
+
     private long getLoginEndTimestamp(long timestamp) {
         int timeout = connectionProperties.getConnectTimeout();
         if (timeout <= 0) {
@@ -251,39 +471,268 @@ public class UClientSideConnection extends UConnection {
         return timestamp + (timeout * 1000);
     }
 
+    /*
+     * Starts an attempt to the next host after delay milliseconds, or as soon
+     * as the previous attempt fails. The first attempt that completes the
+     * handshake is used and the others are cancelled.
+     */
+    private void reconnectParallel(int delay) throws IOException, UJciException {
+        UUnreachableHostList unreachableHosts = UUnreachableHostList.getInstance();
+        boolean useSSL = connectionProperties.getUseSSL();
+        unreachableHosts.setUseSSL(useSSL);
+
+        boolean admitted = false;
+        for (int retry = 0; retry < 2 && !admitted; retry++) {
+            ArrayList<Integer> hostIds = new ArrayList<Integer>();
+            for (int hostId = 0; hostId < altHosts.size(); hostId++) {
+                /*
+                 * if no host is admitted by its circuit breaker, ignore
+                 * host reachability and try one more time
+                 */
+                if (retry == 1 || unreachableHosts.tryAcquire(altHosts.get(hostId))) {
+                    hostIds.add(hostId);
+                }
+            }
+            admitted = !hostIds.isEmpty();
+
+            UConnectAttempt attempt = raceAttempts(hostIds, delay, retry == 0);
+            if (attempt != null) {
+                completeConnect(attempt);
+                connectedHostId = attempt.hostId;
+                if (attempt.hostId > 0) {
+                    lastFailureTime = System.currentTimeMillis() / 1000;
+                }
+
+                unreachableHosts.recordSuccess(altHosts.get(attempt.hostId));
+                return; // success to connect
+            }
+        }
+        // failed to connect to neither hosts
+        throw createJciException(UErrorCode.ER_CONNECTION);
+    }
+
+    /* acquired is false when the hosts were tried without asking their breakers */
+    private UConnectAttempt raceAttempts(ArrayList<Integer> hostIds, int delay, boolean acquired)
+            throws IOException, UJciException {
+        final LinkedBlockingQueue<UConnectAttempt> finished =
+                new LinkedBlockingQueue<UConnectAttempt>();
+        /* started attempts whose result is not processed yet */
+        ArrayList<UConnectAttempt> pending = new ArrayList<UConnectAttempt>();
+        UUnreachableHostList unreachableHosts = UUnreachableHostList.getInstance();
+        int next = 0;
+        int running = 0;
+        boolean startNext = true;
+
+        try {
+            while (true) {
+                if (startNext && next < hostIds.size()) {
+                    int hostId = hostIds.get(next++);
+                    setActiveHost(hostId);
+                    final UConnectAttempt attempt = new UConnectAttempt(hostId, casIp, casPort);
+                    final long endTimestamp = getLoginEndTimestamp(System.currentTimeMillis());
+                    pending.add(attempt);
+                    running++;
+                    getConnectExecutor()
+                            .execute(
+                                    new Runnable() {
+                                        public void run() {
+                                            try {
+                                                openAttempt(attempt, endTimestamp);
+                                            } catch (Exception e) {
+                                                attempt.failure = e;
+                                            }
+                                            finished.add(attempt);
+                                        }
+                                    });
+                }
+                if (running == 0) {
+                    return null;
+                }
+
+                UConnectAttempt attempt;
+                if (next < hostIds.size()) {
+                    attempt = finished.poll(delay, TimeUnit.MILLISECONDS);
+                } else {
+                    attempt = finished.take();
+                }
+                if (attempt == null) {
+                    /* no answer within the delay, start the next host */
+                    startNext = true;
+                    continue;
+                }
+
+                running--;
+                pending.remove(attempt);
+                if (attempt.failure == null) {
+                    return attempt;
+                }
+
+                logException(attempt.failure);
+                attempt.close();
+                if (attempt.failure instanceof UJciException) {
+                    UJciException e = (UJciException) attempt.failure;
+                    if (isNetworkError(e)) {
+                        markUnreachable(altHosts.get(attempt.hostId), e, acquired);
+                    } else {
+                        if (acquired) unreachableHosts.release(altHosts.get(attempt.hostId));
+                        throw e;
+                    }
+                } else if (attempt.failure instanceof IOException) {
+                    /* another host may still answer */
+                    markUnreachable(altHosts.get(attempt.hostId), attempt.failure, acquired);
+                } else {
+                    if (acquired) unreachableHosts.release(altHosts.get(attempt.hostId));
+                    throw (RuntimeException) attempt.failure;
+                }
+                startNext = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UJciException(UErrorCode.ER_CONNECTION, e);
+        } finally {
+            for (int i = 0; i < pending.size(); i++) {
+                pending.get(i).cancel();
+                if (acquired) unreachableHosts.release(altHosts.get(pending.get(i).hostId));
+            }
+            /* hosts admitted by their breakers but not tried */
+            for (int i = next; acquired && i < hostIds.size(); i++) {
+                unreachableHosts.release(altHosts.get(hostIds.get(i)));
+            }
+        }
+    }
+
+    private static ExecutorService connectExecutor = null;
+
+    private static synchronized ExecutorService getConnectExecutor() {
+        if (connectExecutor == null) {
+            connectExecutor =
+                    Executors.newCachedThreadPool(
+                            new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "CUBRID-Connect");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+        }
+        return connectExecutor;
+    }
+
     private void reconnectWorker(long endTimestamp) throws IOException, UJciException {
+        UConnectAttempt attempt = new UConnectAttempt(-1, casIp, casPort);
+        try {
+            openAttempt(attempt, endTimestamp);
+        } catch (IOException e) {
+            attempt.close();
+            throw e;
+        } catch (UJciException e) {
+            attempt.close();
+            throw e;
+        }
+        completeConnect(attempt);
+    }
+
+    /* connects to the broker and completes the handshake; may run on another thread */
+    private void openAttempt(UConnectAttempt attempt, long endTimestamp)
+            throws IOException, UJciException {
         if (UJCIUtil.isConsoleDebug()) {
-            CUBRIDDriver.printDebug(String.format("Try Connect (%s,%d)", casIp, casPort));
+            CUBRIDDriver.printDebug(
+                    String.format("Try Connect (%s,%d)", attempt.ip, attempt.port));
         }
 
         int timeout = connectionProperties.getConnectTimeout() * 1000;
         boolean useSSL = connectionProperties.getUseSSL();
-        client =
-                BrokerHandler.connectBroker(
-                        casIp, casPort, useSSL, getTimeout(endTimestamp, timeout));
-        output = new DataOutputStream(client.getOutputStream());
-        connectDB(getTimeout(endTimestamp, timeout));
+        boolean useChannel = connectionProperties.getUseSocketChannel();
+        int concurrency = connectionProperties.getConnectConcurrency();
+        int rate = connectionProperties.getConnectRate();
+        String host = attempt.ip + ":" + attempt.port;
+
+        UConnectGovernor.acquire(host, concurrency, rate, endTimestamp);
+        boolean failed = true;
+        try {
+            long begin = System.currentTimeMillis();
+            attempt.open(useSSL, useChannel, getTimeout(endTimestamp, timeout), timeout);
+            connectDB(attempt, getTimeout(endTimestamp, timeout));
+            UHostStatistics.getInstance()
+                    .get(host)
+                    .addConnectTime(System.currentTimeMillis() - begin);
+            failed = false;
+        } catch (UJciException e) {
+            /* the broker answered; waiting callers need not give up */
+            failed = isNetworkError(e);
+            throw e;
+        } finally {
+            UConnectGovernor.release(host, concurrency, rate, failed);
+        }
+        if (attempt.isCancelled()) {
+            attempt.close();
+        }
+    }
 
-        input =
-                new UTimedDataInputStream(
-                        client.getInputStream(), casIp, casPort, casProcessId, sessionId, timeout);
+    private void completeConnect(UConnectAttempt attempt) throws IOException, UJciException {
+        adoptAttempt(attempt);
+        input.setCASProcess(casProcessId, sessionId);
+        hostStat = UHostStatistics.getInstance().get(casIp + ":" + casPort);
 
         client.setTcpNoDelay(true);
         client.setSoTimeout(SOCKET_TIMEOUT);
         needReconnection = false;
         isClosed = false;
 
+        /* a new CAS has the broker defaults, an idle one what was set on its route */
+        errorHandler = new UError(this);
         int isolationLevel = currentIsolationLevel();
-        if (isolationLevel != CUBRIDIsolationLevel.TRAN_UNKNOWN_ISOLATION)
-            setIsolationLevel(isolationLevel);
+        if (isolationLevel != CUBRIDIsolationLevel.TRAN_UNKNOWN_ISOLATION
+                && isolationLevel != attempt.isolationLevel) {
+            sendIsolationLevel(isolationLevel);
+        }
 
         int lockTimeout = getLockTimeout();
-        if (lockTimeout != LOCK_TIMEOUT_NOT_USED) setLockTimeout(lockTimeout);
+        if (lockTimeout != LOCK_TIMEOUT_NOT_USED && lockTimeout != attempt.lockTimeout) {
+            sendLockTimeout(lockTimeout);
+        }
         /*
          * if(!lastAutoCommit) setAutoCommit(lastAutoCommit);
          */
     }
 
+    private void adoptAttempt(UConnectAttempt attempt) {
+        casIp = attempt.ip;
+        casPort = attempt.port;
+        client = attempt.client;
+        transport = attempt.transport;
+        output = attempt.output;
+        input = attempt.input;
+        /* each CAS has its own handles; see UStatement.park() */
+        if (attempt.closeHandles != null) {
+            deferred_close_handle = attempt.closeHandles;
+            deferred_cursor_close = attempt.closeCursors;
+        } else {
+            deferred_close_handle = new UIntQueue();
+            deferred_cursor_close = new UIntQueue();
+        }
+
+        casInfo = attempt.casInfo;
+        casProcessId = attempt.casProcessId;
+        brokerInfo = attempt.brokerInfo;
+        brokerVersion = attempt.brokerVersion;
+        protocolVersion = attempt.protocolVersion;
+        casId = attempt.casId;
+        if (protoVersionIsAbove(PROTOCOL_V3)) {
+            System.arraycopy(attempt.sessionId, 0, sessionId, 0, sessionId.length);
+        } else {
+            oldSessionId = attempt.oldSessionId;
+        }
+
+        if (protoVersionIsAbove(PROTOCOL_V7)) {
+            setIsolationLevelMin(CUBRIDIsolationLevel.TRAN_READ_COMMITTED);
+            setIsolationLevelMax(CUBRIDIsolationLevel.TRAN_SERIALIZABLE);
+        } else {
+            setIsolationLevelMin(CUBRIDIsolationLevel.TRAN_COMMIT_CLASS_UNCOMMIT_INSTANCE);
+            setIsolationLevelMax(CUBRIDIsolationLevel.TRAN_SERIALIZABLE);
+        }
+    }
+
     private int getTimeout(long endTimestamp, int timeout) throws UJciException {
         if (endTimestamp == 0) {
             return timeout;
@@ -329,7 +778,7 @@ public class UClientSideConnection extends UConnection {
                     outBuffer.newRequest(output, UFunctionCode.END_TRANSACTION);
                     outBuffer.addByte((type == true) ? END_TRAN_COMMIT : END_TRAN_ROLLBACK);
 
-                    send_recv_msg();
+                    send_recv_msg().release();
                     if (getAutoCommit()) {
                         turnOffAutoCommitBySelf();
                     }
@@ -351,63 +800,179 @@ public class UClientSideConnection extends UConnection {
          * errorHandler.clear();
          */
 
-        boolean keepConnection = true;
         long currentTime = System.currentTimeMillis() / 1000;
         int reconnectTime = connectionProperties.getReconnectTime();
         UUnreachableHostList unreachableHosts = UUnreachableHostList.getInstance();
 
+        /* a load balanced connection has no primary host to fail back to */
         if (connectedHostId > 0
+                && !routedReadOnly
+                && !connectionProperties.getConnLoadBal()
                 && lastFailureTime != 0
                 && reconnectTime > 0
-                && currentTime - lastFailureTime > reconnectTime) {
-            if (!unreachableHosts.contains(altHosts.get(0))) {
-                keepConnection = false;
-                lastFailureTime = 0;
+                && currentTime - lastFailureTime > reconnectTime
+                && failbackAttempt == null) {
+            if (unreachableHosts.tryAcquire(altHosts.get(0))) {
+                startFailback();
             }
         }
 
-        if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR
-                || keepConnection == false) // jci 3.0
+        if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR) // jci 3.0
         {
             if (type == false) {
                 errorHandler.clear();
             }
 
+            cancelFailback();
             clientSocketClose();
             needReconnection = true;
         }
 
         casInfo[CAS_INFO_STATUS] = CAS_INFO_STATUS_INACTIVE;
         update_executed = false;
+
+        if (failbackTask != null && failbackTask.isDone()) {
+            finishFailback();
+        }
+        switchRoute();
     }
 
-    private void connectDB(int timeout) throws IOException, UJciException {
-        UTimedDataInputStream is =
-                new UTimedDataInputStream(client.getInputStream(), casIp, casPort, timeout);
-        DataOutputStream os = new DataOutputStream(client.getOutputStream());
+    /*
+     * Opens the connection to the primary host off-thread while the
+     * alternate host keeps serving requests. It is swapped in by
+     * finishFailback() at a later transaction boundary.
+     */
+    private void startFailback() {
+        String primary = altHosts.get(0);
+        int pos = primary.indexOf(':');
+        final UConnectAttempt attempt;
+        try {
+            attempt =
+                    new UConnectAttempt(
+                            0,
+                            primary.substring(0, pos),
+                            Integer.valueOf(primary.substring(pos + 1)).intValue());
+        } catch (RuntimeException e) {
+            logException(e);
+            UUnreachableHostList.getInstance().release(primary);
+            return;
+        }
+
+        final long endTimestamp = getLoginEndTimestamp(System.currentTimeMillis());
+        failbackAttempt = attempt;
+        failbackTask =
+                getConnectExecutor()
+                        .submit(
+                                new Runnable() {
+                                    public void run() {
+                                        try {
+                                            openAttempt(attempt, endTimestamp);
+                                        } catch (Exception e) {
+                                            attempt.failure = e;
+                                        }
+                                    }
+                                });
+    }
+
+    private void finishFailback() {
+        UConnectAttempt attempt = failbackAttempt;
+        Future<?> task = failbackTask;
+        String primary = altHosts.get(0);
+        failbackAttempt = null;
+        failbackTask = null;
+
+        if (needReconnection || connectedHostId == 0) {
+            /* reconnected in the meantime */
+            attempt.close();
+            UUnreachableHostList.getInstance().release(primary);
+            return;
+        }
+
+        if (attempt.failure != null) {
+            /* stay on the alternate host and try again after rcTime */
+            logException(attempt.failure);
+            attempt.close();
+            if (attempt.failure instanceof IOException
+                    || (attempt.failure instanceof UJciException
+                            && isNetworkError((UJciException) attempt.failure))) {
+                markUnreachable(primary, attempt.failure, true);
+            } else {
+                UUnreachableHostList.getInstance().release(primary);
+            }
+            lastFailureTime = System.currentTimeMillis() / 1000;
+            return;
+        }
+
+        if (hasOpenResults()) {
+            /* swapped at a later transaction boundary once the results are closed */
+            failbackAttempt = attempt;
+            failbackTask = task;
+            return;
+        }
+
+        UUnreachableHostList.getInstance().recordSuccess(primary);
+        UError savedError = errorHandler;
+        try {
+            outBuffer.newRequest(output, UFunctionCode.CON_CLOSE);
+            send_recv_msg().release();
+        } catch (Exception e) {
+            // ignore
+        }
+        /* prepared again on the primary host when executed */
+        parkPooledUStatements();
+        clientSocketClose();
+        try {
+            completeConnect(attempt);
+            connectedHostId = 0;
+            lastFailureTime = 0;
+            if (UJCIUtil.isSendAppInfo()) {
+                sendAppInfo();
+            }
+        } catch (Exception e) {
+            /* the next request reconnects as usual */
+            logException(e);
+            clientSocketClose();
+        }
+        errorHandler = savedError;
+    }
+
+    private void cancelFailback() {
+        if (failbackAttempt != null) {
+            failbackAttempt.cancel();
+            failbackTask.cancel(false);
+            UUnreachableHostList.getInstance().release(altHosts.get(0));
+            failbackAttempt = null;
+            failbackTask = null;
+        }
+    }
+
+    private void connectDB(UConnectAttempt attempt, int timeout)
+            throws IOException, UJciException {
+        UTimedDataInputStream is = attempt.input;
 
         // send database information
-        os.write(dbInfo);
+        attempt.output.write(dbInfo);
+        attempt.output.flush();
 
         // receive header
-        int dataLength = is.readInt();
-        casInfo = new byte[CAS_INFO_SIZE];
-        is.readFully(casInfo);
+        int dataLength = is.readInt(timeout);
+        attempt.casInfo = new byte[CAS_INFO_SIZE];
+        is.readFully(attempt.casInfo, timeout);
         if (dataLength < 0) {
             throw new UJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
         }
 
         // receive data
-        int response = is.readInt();
+        int response = is.readInt(timeout);
         if (response < 0) {
-            int code = is.readInt();
+            int code = is.readInt(timeout);
             // the error greater than -10000 with CAS_ERROR_INDICATOR is sent by old broker
             // -1018 (CAS_ER_NOT_AUTHORIZED_CLIENT) is especial case
             if ((response == UErrorCode.CAS_ERROR_INDICATOR && code > -10000) || code == -1018) {
                 code -= 9000;
             }
             byte msg[] = new byte[dataLength - 8];
-            is.readFully(msg);
+            is.readFully(msg, timeout);
             throw new UJciException(
                     UErrorCode.ER_DBMS,
                     response,
@@ -415,44 +980,35 @@ public class UClientSideConnection extends UConnection {
                     new String(msg, 0, Math.max(msg.length - 1, 0)));
         }
 
-        casProcessId = response;
-        if (brokerInfo == null) {
-            brokerInfo = new byte[BROKER_INFO_SIZE];
-        }
-        is.readFully(brokerInfo);
+        attempt.casProcessId = response;
+        attempt.brokerInfo = new byte[BROKER_INFO_SIZE];
+        is.readFully(attempt.brokerInfo, timeout);
 
         /* synchronize with broker_info */
-        byte version = brokerInfo[BROKER_INFO_PROTO_VERSION];
+        byte version = attempt.brokerInfo[BROKER_INFO_PROTO_VERSION];
         if ((version & CAS_PROTO_INDICATOR) == CAS_PROTO_INDICATOR) {
-            brokerVersion = makeProtoVersion(version & CAS_PROTO_VER_MASK);
+            attempt.brokerVersion = makeProtoVersion(version & CAS_PROTO_VER_MASK);
         } else {
-            brokerVersion =
+            attempt.brokerVersion =
                     makeBrokerVersion(
-                            (int) brokerInfo[BROKER_INFO_MAJOR_VERSION],
-                            (int) brokerInfo[BROKER_INFO_MINOR_VERSION],
-                            (int) brokerInfo[BROKER_INFO_PATCH_VERSION]);
+                            (int) attempt.brokerInfo[BROKER_INFO_MAJOR_VERSION],
+                            (int) attempt.brokerInfo[BROKER_INFO_MINOR_VERSION],
+                            (int) attempt.brokerInfo[BROKER_INFO_PATCH_VERSION]);
         }
 
-        protocolVersion = (int) version & CAS_PROTO_VER_MASK;
+        attempt.protocolVersion = (int) version & CAS_PROTO_VER_MASK;
 
-        if (protoVersionIsAbove(PROTOCOL_V4)) {
-            casId = is.readInt();
+        if (attempt.brokerVersion >= makeProtoVersion(PROTOCOL_V4)) {
+            attempt.casId = is.readInt(timeout);
         } else {
-            casId = -1;
+            attempt.casId = -1;
         }
 
-        if (protoVersionIsAbove(PROTOCOL_V3)) {
-            is.readFully(sessionId);
+        attempt.sessionId = new byte[SESSION_ID_SIZE];
+        if (attempt.brokerVersion >= makeProtoVersion(PROTOCOL_V3)) {
+            is.readFully(attempt.sessionId, timeout);
         } else {
-            oldSessionId = is.readInt();
-        }
-
-        if (protoVersionIsAbove(PROTOCOL_V7)) {
-            setIsolationLevelMin(CUBRIDIsolationLevel.TRAN_READ_COMMITTED);
-            setIsolationLevelMax(CUBRIDIsolationLevel.TRAN_SERIALIZABLE);
-        } else {
-            setIsolationLevelMin(CUBRIDIsolationLevel.TRAN_COMMIT_CLASS_UNCOMMIT_INSTANCE);
-            setIsolationLevelMax(CUBRIDIsolationLevel.TRAN_SERIALIZABLE);
+            attempt.oldSessionId = is.readInt(timeout);
         }
     }
 
@@ -476,6 +1032,11 @@ public class UClientSideConnection extends UConnection {
 
     @Override
     protected void closeInternal() {
+        cancelFailback();
+        UConnectAttempt idle = otherRoute == null ? null : otherRoute.takeConnection();
+        if (idle != null) {
+            idle.close();
+        }
         // jci 3.0
         if (client != null) {
             disconnect();
@@ -40,6 +40,8 @@
  */
 package cubrid.jdbc.jci;
 
+import java.nio.charset.Charset;
+
 public class UColumnInfo {
     private static final byte SET_FLAG = (byte) 0040;
     private static final byte MULTISET_FLAG = (byte) 0100;
@@ -50,6 +52,7 @@ public class UColumnInfo {
     private short scale;
     private int precision;
     private String charsetName;
+    private Charset charset;
     private String name, className, attributeName;
     // private String FQDN;
     private boolean isNullable;
@@ -79,6 +82,7 @@ public class UColumnInfo {
         scale = cScale;
         precision = cPrecision;
         charsetName = cCharset;
+        charset = UJCIUtil.getCharset(cCharset);
         name = cName;
         className = null;
         attributeName = null;
@@ -156,6 +160,10 @@ public class UColumnInfo {
         return charsetName;
     }
 
+    Charset getCharset() {
+        return charset;
+    }
+
     public byte getColumnType() {
         return type;
     }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.jci;
+
+import cubrid.jdbc.net.BrokerHandler;
+import cubrid.jdbc.net.SocketChannelTransport;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/*
+ * One connection attempt to a broker/CAS. The socket, the streams and the
+ * handshake results are kept here until the connection adopts the attempt,
+ * so that several attempts can run at the same time.
+ */
+class UConnectAttempt {
+    final int hostId;
+    final String ip;
+    final int port;
+
+    volatile Socket client;
+    volatile SocketChannelTransport transport;
+    DataOutputStream output;
+    UTimedDataInputStream input;
+
+    /* handshake results */
+    byte casInfo[];
+    int casProcessId;
+    byte brokerInfo[];
+    int brokerVersion;
+    int protocolVersion;
+    int casId;
+    byte sessionId[];
+    int oldSessionId;
+
+    /* closes still to be sent to the CAS of a detached connection */
+    UIntQueue closeHandles;
+    UIntQueue closeCursors;
+    /* session parameters set on the CAS of a detached connection */
+    int isolationLevel = CUBRIDIsolationLevel.TRAN_UNKNOWN_ISOLATION;
+    int lockTimeout = UConnection.LOCK_TIMEOUT_NOT_USED;
+
+    /* set when the attempt ran on another thread and failed */
+    Exception failure;
+
+    private volatile boolean cancelled = false;
+
+    UConnectAttempt(int hostId, String ip, int port) {
+        this.hostId = hostId;
+        this.ip = ip;
+        this.port = port;
+    }
+
+    void open(boolean useSSL, boolean useChannel, int timeout, int readTimeout)
+            throws IOException, UJciException {
+        client = BrokerHandler.connectBroker(ip, port, useSSL, useChannel, timeout);
+        if (cancelled) {
+            close();
+            throw new UJciException(UErrorCode.ER_CONNECTION);
+        }
+
+        if (client.getChannel() != null) {
+            transport = new SocketChannelTransport(client);
+            output = new DataOutputStream(transport.getOutputStream());
+            input =
+                    new UTimedDataInputStream(
+                            transport.getInputStream(), ip, port, readTimeout, false);
+        } else {
+            output = new DataOutputStream(client.getOutputStream());
+            input = new UTimedDataInputStream(client.getInputStream(), ip, port, readTimeout);
+        }
+    }
+
+    /* closes the socket, which also unblocks a thread still connecting */
+    void cancel() {
+        cancelled = true;
+        close();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void close() {
+        try {
+            Socket s = client;
+            if (s != null) {
+                s.setSoLinger(true, 0);
+                s.close();
+            }
+            SocketChannelTransport t = transport;
+            if (t != null) {
+                t.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.jci;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Driver-wide limit on connection handshakes per broker host.
+ * At most maxConcurrent handshakes run at a time and new ones start at no
+ * more than rate per second. Callers waiting for a host fail at once when
+ * a handshake to that host fails after they started waiting, instead of
+ * each trying the broken host in turn. Such a caller, or one whose connect
+ * timeout ends while it waits, gets a WaitFailure: the host itself was not
+ * tried, so the failure must not be counted against it again.
+ */
+class UConnectGovernor {
+    private static final ConcurrentHashMap<String, HostGate> gates =
+            new ConcurrentHashMap<String, HostGate>();
+
+    static class WaitFailure extends UJciException {
+        private static final long serialVersionUID = -3390283658394406527L;
+
+        WaitFailure(int err) {
+            super(err);
+        }
+
+        WaitFailure(int err, Throwable t) {
+            super(err, t);
+        }
+    }
+
+    private static class HostGate {
+        private int inProgress = 0;
+        private double tokens = -1;
+        private long lastRefill = 0;
+        private long lastFailure = 0;
+
+        synchronized void acquire(int maxConcurrent, int rate, long endTimestamp)
+                throws UJciException {
+            long enqueued = System.currentTimeMillis();
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (lastFailure >= enqueued) {
+                    throw new WaitFailure(UErrorCode.ER_CONNECTION);
+                }
+
+                long waitTime = 0;
+                if (maxConcurrent <= 0 || inProgress < maxConcurrent) {
+                    waitTime = takeToken(rate, now);
+                    if (waitTime == 0) {
+                        inProgress++;
+                        return;
+                    }
+                }
+
+                if (endTimestamp > 0) {
+                    long remain = endTimestamp - now;
+                    if (remain <= 0) {
+                        throw new WaitFailure(UErrorCode.ER_TIMEOUT);
+                    }
+                    waitTime = waitTime == 0 ? remain : Math.min(waitTime, remain);
+                }
+                try {
+                    wait(waitTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WaitFailure(UErrorCode.ER_CONNECTION, e);
+                }
+            }
+        }
+
+        synchronized void release(boolean failed) {
+            inProgress--;
+            if (failed) {
+                lastFailure = System.currentTimeMillis();
+            }
+            notifyAll();
+        }
+
+        /* returns 0 if a token is taken, otherwise msec until the next token */
+        private long takeToken(int rate, long now) {
+            if (rate <= 0) {
+                return 0;
+            }
+            if (tokens < 0) {
+                tokens = rate;
+            } else {
+                tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1000.0);
+            }
+            lastRefill = now;
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) * 1000 / rate));
+        }
+    }
+
+    static void acquire(String host, int maxConcurrent, int rate, long endTimestamp)
+            throws UJciException {
+        if (maxConcurrent <= 0 && rate <= 0) {
+            return;
+        }
+        getGate(host).acquire(maxConcurrent, rate, endTimestamp);
+    }
+
+    static void release(String host, int maxConcurrent, int rate, boolean failed) {
+        if (maxConcurrent <= 0 && rate <= 0) {
+            return;
+        }
+        getGate(host).release(failed);
+    }
+
+    private static HostGate getGate(String host) {
+        HostGate gate = gates.get(host);
+        if (gate == null) {
+            HostGate newGate = new HostGate();
+            gate = gates.putIfAbsent(host, newGate);
+            if (gate == null) {
+                gate = newGate;
+            }
+        }
+        return gate;
+    }
+}
@@ -47,11 +47,14 @@ import cubrid.jdbc.driver.ConnectionProperties;
 import cubrid.jdbc.log.BasicLogger;
 import cubrid.jdbc.log.Log;
 import cubrid.jdbc.net.BrokerHandler;
+import cubrid.jdbc.net.SocketChannelTransport;
 import cubrid.sql.CUBRIDOID;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.channels.GatheringByteChannel;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -220,9 +223,15 @@ public abstract class UConnection {
     protected CUBRIDConnection cubridcon;
 
     protected Socket client;
+    protected SocketChannelTransport transport;
+    /* statistics of the connected broker; null until connected */
+    protected UHostStatistics.HostStat hostStat;
+    /* System.nanoTime() at the end of the last successful request, 0 if none */
+    volatile long lastRoundTripTime = 0;
     protected UTimedDataInputStream input;
     protected DataOutputStream output;
     protected UOutputBuffer outBuffer;
+    private UInputBufferPool recvBufferPool;
 
     // jci 3.0
 
@@ -257,7 +266,13 @@ public abstract class UConnection {
 
     boolean skip_checkcas = false;
     Vector<UStatement> pooled_ustmts;
-    Vector<Integer> deferred_close_handle;
+    UIntQueue deferred_close_handle;
+    UIntQueue deferred_cursor_close;
+    /* statement whose streamed fetch is still being read from the socket */
+    UStatement pendingFetch;
+    private UOutputBuffer closeBuffer;
+
+    protected boolean readOnly = false;
 
     private long beginTime;
 
@@ -288,7 +303,7 @@ public abstract class UConnection {
 
         try {
             outBuffer.newRequest(output, UFunctionCode.CHECK_CAS);
-            send_recv_msg();
+            send_recv_timed().release();
         } catch (IOException e) {
             logException(e);
             return false;
@@ -304,7 +319,7 @@ public abstract class UConnection {
         try {
             outBuffer.newRequest(output, UFunctionCode.CHECK_CAS);
             outBuffer.addStringWithNull(msg);
-            send_recv_msg();
+            send_recv_timed().release();
         } catch (Exception e) {
             return false;
         }
@@ -333,7 +348,7 @@ public abstract class UConnection {
             checkReconnect();
             if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR) return;
             outBuffer.newRequest(output, UFunctionCode.END_SESSION);
-            send_recv_msg();
+            send_recv_msg().release();
             sessionId = createNullSession();
             oldSessionId = 0;
         } catch (Exception e) {
@@ -397,7 +412,7 @@ public abstract class UConnection {
             outBuffer.addByte(getAutoCommit() ? (byte) 1 : (byte) 0);
 
             UInputBuffer inBuffer;
-            inBuffer = send_recv_msg();
+            inBuffer = send_recv_timed();
 
             return inBuffer.readString(inBuffer.remainedCapacity(), UJCIManager.sysCharsetName);
         } catch (UJciException e) {
@@ -605,6 +620,7 @@ public abstract class UConnection {
             if (protoVersionIsAbove(UConnection.PROTOCOL_V5)) {
                 setShardId(inBuffer.readInt());
             }
+            inBuffer.release();
 
             update_executed = true;
             return batchResult;
@@ -719,7 +735,7 @@ public abstract class UConnection {
             if (attributeName == null) outBuffer.addNull();
             else outBuffer.addStringWithNull(attributeName);
 
-            send_recv_msg();
+            send_recv_msg().release();
         } catch (UJciException e) {
             logException(e);
             e.toUError(errorHandler);
@@ -900,7 +916,7 @@ public abstract class UConnection {
             outBuffer.addOID(oid);
             if (putParameter != null) putParameter.writeParameter(outBuffer);
 
-            send_recv_msg();
+            send_recv_msg().release();
             if (getAutoCommit()) {
                 turnOnAutoCommitBySelf();
             }
@@ -921,7 +937,11 @@ public abstract class UConnection {
                 && lastIsolationLevel == level) {
             return;
         }
+        sendIsolationLevel(level);
+    }
 
+    /* sets the level on the CAS even if it is the last one set on another CAS */
+    synchronized void sendIsolationLevel(int level) {
         if (isClosed == true) {
             errorHandler.setErrorCode(UErrorCode.ER_IS_CLOSED);
             return;
@@ -939,7 +959,7 @@ public abstract class UConnection {
             outBuffer.addInt(DB_PARAM_ISOLATION_LEVEL);
             outBuffer.addInt(level);
 
-            send_recv_msg();
+            send_recv_msg().release();
 
             lastIsolationLevel = level;
         } catch (UJciException e) {
@@ -957,7 +977,11 @@ public abstract class UConnection {
         if (lastLockTimeout != LOCK_TIMEOUT_NOT_USED && lastLockTimeout == timeout) {
             return;
         }
+        sendLockTimeout(timeout);
+    }
 
+    /* sets the timeout on the CAS even if it is the last one set on another CAS */
+    synchronized void sendLockTimeout(int timeout) {
         if (isClosed == true) {
             errorHandler.setErrorCode(UErrorCode.ER_IS_CLOSED);
             return;
@@ -972,7 +996,7 @@ public abstract class UConnection {
             outBuffer.addInt(DB_PARAM_LOCK_TIMEOUT);
             outBuffer.addInt(timeout);
 
-            send_recv_msg();
+            send_recv_msg().release();
 
             if (timeout < 0) lastLockTimeout = LOCK_TIMEOUT_INFINITE;
             else lastLockTimeout = timeout;
@@ -1163,7 +1187,7 @@ public abstract class UConnection {
             outBuffer.addXid(xid);
             outBuffer.addByte((type == true) ? END_TRAN_COMMIT : END_TRAN_ROLLBACK);
 
-            send_recv_msg();
+            send_recv_msg().release();
         } catch (Exception e) {
             errorHandler.setErrorCode(UErrorCode.ER_UNKNOWN);
         } finally {
@@ -1189,7 +1213,7 @@ public abstract class UConnection {
             outBuffer.newRequest(output, UFunctionCode.XA_PREPARE);
             outBuffer.addXid(xid);
 
-            send_recv_msg();
+            send_recv_msg().release();
         } catch (Exception e) {
             errorHandler.setErrorCode(UErrorCode.ER_UNKNOWN);
         }
@@ -1298,7 +1322,7 @@ public abstract class UConnection {
             if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR) return;
 
             outBuffer.newRequest(output, UFunctionCode.CON_CLOSE);
-            send_recv_msg();
+            send_recv_msg().release();
         } catch (Exception e) {
         }
     }
@@ -1313,9 +1337,9 @@ public abstract class UConnection {
         outBuffer.addByte(flag);
         outBuffer.addByte(getAutoCommit() ? (byte) 1 : (byte) 0);
 
-        while (deferred_close_handle.isEmpty() != true) {
-            Integer close_handle = (Integer) deferred_close_handle.remove(0);
-            outBuffer.addInt(close_handle.intValue());
+        int[] close_handles = deferred_close_handle.drain();
+        for (int i = 0; i < close_handles.length; i++) {
+            outBuffer.addInt(close_handles[i]);
         }
 
         UInputBuffer inBuffer = send_recv_msg();
@@ -1336,6 +1360,12 @@ public abstract class UConnection {
         return stmt;
     }
 
+    /* the statement is prepared by its first execute() with PREPARE_AND_EXECUTE */
+    public synchronized UStatement prepareOnExecute(String sql, byte flag) {
+        errorHandler = new UError(this);
+        return new UStatement(this, sql, flag);
+    }
+
     // UFunctionCode.RELATED_TO_COLLECTION
     protected void manageElementOfSequence(
             CUBRIDOID oid, String attributeName, int index, Object value, byte flag)
@@ -1353,7 +1383,7 @@ public abstract class UConnection {
         outBuffer.addInt(index);
         aParameter.writeParameter(outBuffer);
 
-        send_recv_msg();
+        send_recv_msg().release();
     }
 
     protected void manageElementOfSet(CUBRIDOID oid, String attributeName, Object value, byte flag)
@@ -1370,13 +1400,16 @@ public abstract class UConnection {
         outBuffer.addOID(oid);
         aParameter.writeParameter(outBuffer);
 
-        send_recv_msg();
+        send_recv_msg().release();
     }
 
     /*
      * requests via broker handler
      */
     public boolean isValid(int timeout) throws SQLException {
+        if (isRecentlyActive()) {
+            return true;
+        }
         if (protoVersionIsUnder(PROTOCOL_V9)) {
             return !isClosed;
         }
@@ -1395,6 +1428,24 @@ public abstract class UConnection {
         return true;
     }
 
+    /* trusts a connection whose last request succeeded within validationWindow */
+    private boolean isRecentlyActive() {
+        if (connectionProperties == null) {
+            return false;
+        }
+        int window = connectionProperties.getValidationWindow();
+        if (window <= 0 || isClosed || needReconnection) {
+            return false;
+        }
+
+        Socket s = client;
+        if (s == null || s.isClosed() || !s.isConnected() || s.isInputShutdown()) {
+            return false;
+        }
+        long last = lastRoundTripTime;
+        return last != 0 && System.nanoTime() - last < window * 1000000L;
+    }
+
     void cancel() throws UJciException, IOException {
         if (protoVersionIsAbove(PROTOCOL_V4)) {
             BrokerHandler.cancelBrokerEx(casIp, casPort, casProcessId, READ_TIMEOUT);
@@ -1495,6 +1546,33 @@ public abstract class UConnection {
         return connectionProperties.getClientCacheSize() * 1024 * 1024;
     }
 
+    public int getRecvBufferPoolSize() {
+        /* unit = MByte */
+        return connectionProperties.getRecvBufferPoolSize() * 1024 * 1024;
+    }
+
+    public int getStreamingFetchWindowSize() {
+        /* unit = KByte */
+        return connectionProperties.getStreamingFetchWindowSize() * 1024;
+    }
+
+    public boolean useStreamingFetch() {
+        /* lazy tuples keep the whole response, so it can not be streamed */
+        return connectionProperties.getStreamingFetchWindowSize() > 0
+                && !connectionProperties.getUseLazyDecoding();
+    }
+
+    public boolean useLazyDecoding() {
+        return connectionProperties.getUseLazyDecoding();
+    }
+
+    /* function code 41 was CURSOR_CLOSE up to PROTOCOL_V2 */
+    public boolean usePrepareAndExecute() {
+        return connectionProperties.getUsePrepareAndExecute()
+                && getDbmsType() == DBMS_CUBRID
+                && protoVersionIsAbove(PROTOCOL_V3);
+    }
+
     public boolean getPrepStmtCache() {
         return connectionProperties.getPrepStmtCache();
     }
@@ -1552,6 +1630,14 @@ public abstract class UConnection {
 
     public abstract boolean getAutoCommit();
 
+    public synchronized void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
     public synchronized void turnOnAutoCommitBySelf() {
         isAutoCommitBySelf = true;
     }
@@ -1568,6 +1654,25 @@ public abstract class UConnection {
         return output;
     }
 
+    /* returns null unless the connection uses the channel transport */
+    GatheringByteChannel getOutputChannel() {
+        return transport;
+    }
+
+    protected InputStream getSocketInputStream() throws IOException {
+        if (transport != null) {
+            return transport.getInputStream();
+        }
+        return client.getInputStream();
+    }
+
+    protected OutputStream getSocketOutputStream() throws IOException {
+        if (transport != null) {
+            return transport.getOutputStream();
+        }
+        return client.getOutputStream();
+    }
+
     public UError getRecentError() {
         return errorHandler;
     }
@@ -1638,6 +1743,22 @@ public abstract class UConnection {
         this.casInfo = casinfo;
     }
 
+    byte[] updateCASInfo(byte[] header, int offset) {
+        /* console debug compares the previous cas info with the new one */
+        if (casInfo == null || UJCIUtil.isConsoleDebug()) {
+            casInfo = new byte[CAS_INFO_SIZE];
+        }
+        System.arraycopy(header, offset, casInfo, 0, CAS_INFO_SIZE);
+        return casInfo;
+    }
+
+    UInputBufferPool getRecvBufferPool() {
+        if (recvBufferPool == null) {
+            recvBufferPool = new UInputBufferPool(getRecvBufferPoolSize());
+        }
+        return recvBufferPool;
+    }
+
     public byte getDbmsType() {
         // jci 3.0
         if (brokerInfo == null) return DBMS_CUBRID;
@@ -1811,28 +1932,64 @@ public abstract class UConnection {
     void clientSocketClose() {
         try {
             needReconnection = true;
+            lastRoundTripTime = 0;
             if (client != null) {
                 client.setSoLinger(true, 0);
                 client.close();
             }
             client = null;
+            if (transport != null) {
+                transport.close();
+            }
+            transport = null;
         } catch (IOException e) {
             logException(e);
         }
+        if (pendingFetch != null) {
+            pendingFetch.abandonPendingFetch();
+        }
         clearPooledUStatements();
         deferred_close_handle.clear();
+        deferred_cursor_close.clear();
     }
 
     UInputBuffer send_recv_msg(boolean recv_result, int timeout) throws UJciException, IOException {
         byte prev_casinfo[] = casInfo;
         UInputBuffer inputBuffer;
+        completePendingFetch();
+        int closes = sendDeferredCloses();
         outBuffer.sendData();
+        receiveDeferredCloses(closes);
         /* set cas info to UConnection member variable and return InputBuffer */
         if (timeout > 0) {
             inputBuffer = new UInputBuffer(input, this, timeout * 1000 + READ_TIMEOUT);
         } else {
             inputBuffer = new UInputBuffer(input, this, 0);
         }
+        lastRoundTripTime = System.nanoTime();
+
+        if (UJCIUtil.isConsoleDebug()) {
+            printCasInfo(prev_casinfo, casInfo);
+        }
+        return inputBuffer;
+    }
+
+    /*
+     * Same as send_recv_msg() but a large response is decoded while it is
+     * received. The caller must decode and release the buffer before leaving
+     * the connection lock.
+     */
+    UInputBuffer send_recv_msg_streaming() throws UJciException, IOException {
+        if (client == null) {
+            throw createJciException(UErrorCode.ER_COMMUNICATION);
+        }
+        byte prev_casinfo[] = casInfo;
+        completePendingFetch();
+        int closes = sendDeferredCloses();
+        outBuffer.sendData();
+        receiveDeferredCloses(closes);
+        UInputBuffer inputBuffer = new UInputBuffer(input, this, 0, getStreamingFetchWindowSize());
+        lastRoundTripTime = System.nanoTime();
 
         if (UJCIUtil.isConsoleDebug()) {
             printCasInfo(prev_casinfo, casInfo);
@@ -1840,6 +1997,99 @@ public abstract class UConnection {
         return inputBuffer;
     }
 
+    /*
+     * For requests the CAS answers without running a query. Only their round
+     * trip goes into the host statistics, so the request time of a host does
+     * not depend on the queries its connections happen to run.
+     */
+    private UInputBuffer send_recv_timed() throws UJciException, IOException {
+        completePendingFetch();
+        long begin = System.nanoTime();
+        UInputBuffer inputBuffer = send_recv_msg();
+        if (hostStat != null) {
+            hostStat.addRequestTime(System.nanoTime() - begin);
+        }
+        return inputBuffer;
+    }
+
+    /*
+     * A streamed fetch must be read to its end before the socket is reused.
+     * If that fails the stream is out of sync and the connection is dropped.
+     */
+    void completePendingFetch() throws UJciException {
+        if (pendingFetch != null) {
+            try {
+                pendingFetch.completePendingFetch();
+            } catch (UJciException e) {
+                logException(e);
+                clientSocketClose();
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * Writes a CURSOR_CLOSE request for every queued cursor and a
+     * CLOSE_USTATEMENT request for every queued handle ahead of the request
+     * in outBuffer, so the closes share its round trip. Cursors go first
+     * because their handles may be among the closed ones.
+     */
+    private int sendDeferredCloses() throws UJciException, IOException {
+        if (deferred_close_handle == null
+                || (deferred_close_handle.isEmpty() && deferred_cursor_close.isEmpty())) {
+            return 0;
+        }
+        int[] cursors = deferred_cursor_close.drain();
+        int[] handles = deferred_close_handle.drain();
+        if (closeBuffer == null) {
+            closeBuffer = new UOutputBuffer(this);
+        }
+        UFunctionCode cursorClose = UFunctionCode.CURSOR_CLOSE;
+        if (protoVersionIsSame(PROTOCOL_V2)) {
+            cursorClose = UFunctionCode.CURSOR_CLOSE_FOR_PROTOCOL_V2;
+        }
+        for (int i = 0; i < cursors.length; i++) {
+            closeBuffer.newRequest(output, cursorClose);
+            closeBuffer.addInt(cursors[i]);
+            closeBuffer.sendData();
+        }
+        for (int i = 0; i < handles.length; i++) {
+            closeBuffer.newRequest(output, UFunctionCode.CLOSE_USTATEMENT);
+            closeBuffer.addInt(handles[i]);
+            /* never auto commit: the request that follows belongs to the transaction */
+            closeBuffer.addByte((byte) 0);
+            closeBuffer.sendData();
+        }
+        return cursors.length + handles.length;
+    }
+
+    /*
+     * The CAS answers the closes in order before the request they preceded.
+     * Each reply updates casInfo like any other; the reply of the request
+     * itself comes last and has the final word.
+     */
+    private void receiveDeferredCloses(int count) throws UJciException, IOException {
+        for (int i = 0; i < count; i++) {
+            try {
+                new UInputBuffer(input, this, 0).release();
+            } catch (UJciException e) {
+                /* the reply was consumed; a handle the server already freed is harmless */
+                logException(e);
+            }
+        }
+    }
+
+    /* closes the socket without cleanup; the next request fails and reconnects */
+    void closeSocket() {
+        try {
+            if (client != null) {
+                client.close();
+            }
+        } catch (IOException e) {
+            logException(e);
+        }
+    }
+
     UInputBuffer send_recv_msg(int timeout) throws UJciException, IOException {
         if (client == null) {
             createJciException(UErrorCode.ER_COMMUNICATION);
@@ -1849,9 +2099,13 @@ public abstract class UConnection {
 
     UInputBuffer send_recv_msg(boolean recv_result) throws UJciException, IOException {
         byte prev_casinfo[] = casInfo;
+        completePendingFetch();
+        int closes = sendDeferredCloses();
         outBuffer.sendData();
+        receiveDeferredCloses(closes);
         /* set cas info to UConnection member variable and return InputBuffer */
         UInputBuffer inputBuffer = new UInputBuffer(input, this, 0);
+        lastRoundTripTime = System.nanoTime();
 
         if (UJCIUtil.isConsoleDebug()) {
             printCasInfo(prev_casinfo, casInfo);
@@ -1951,7 +2205,11 @@ public abstract class UConnection {
         }
 
         if (deferred_close_handle == null) {
-            deferred_close_handle = new Vector<Integer>();
+            deferred_close_handle = new UIntQueue();
+        }
+
+        if (deferred_cursor_close == null) {
+            deferred_cursor_close = new UIntQueue();
         }
     }
 
@@ -1959,7 +2217,7 @@ public abstract class UConnection {
         return new byte[SESSION_ID_SIZE];
     }
 
-    private void clearPooledUStatements() {
+    void clearPooledUStatements() {
         if (pooled_ustmts == null) return;
 
         while (pooled_ustmts.isEmpty() != true) {
@@ -1968,6 +2226,25 @@ public abstract class UConnection {
         }
     }
 
+    boolean hasOpenResults() {
+        if (pooled_ustmts == null) return false;
+
+        for (int i = 0; i < pooled_ustmts.size(); i++) {
+            if (pooled_ustmts.get(i).hasOpenResult()) return true;
+        }
+        return false;
+    }
+
+    /* the statements are used again or prepared again when next executed */
+    void parkPooledUStatements() {
+        if (pooled_ustmts == null) return;
+
+        while (pooled_ustmts.isEmpty() != true) {
+            UStatement tmp_ustmt = pooled_ustmts.remove(0);
+            if (tmp_ustmt != null) tmp_ustmt.park();
+        }
+    }
+
     public void setConnectionProperties(ConnectionProperties connProperties) {
         this.connectionProperties = connProperties;
     }
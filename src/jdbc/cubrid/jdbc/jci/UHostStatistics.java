@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.jci;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Driver-wide statistics of the brokers, keyed by "host:port".
+ * Keeps exponentially weighted moving averages of the connect time, the
+ * round trip time of lightweight requests and the error rate, and orders the
+ * hosts of a load balanced connection with them.
+ */
+public class UHostStatistics {
+    private static final double ALPHA = 0.2;
+    /* statistics not updated for this long are not trusted any more */
+    private static final long STAT_EXPIRE = 5 * 60 * 1000;
+    /* msec added to the cost at an error rate of 1 */
+    private static final double ERROR_PENALTY = 1000.0;
+    /*
+     * The connect time includes the broker handshake and opening the database
+     * and is paid once per connection; the request time is one round trip of
+     * a request that runs no query and is paid on every request. A connection
+     * makes many requests, so a round trip weighs more than a connect.
+     */
+    private static final double CONNECT_WEIGHT = 1.0;
+    private static final double REQUEST_WEIGHT = 10.0;
+
+    private static UHostStatistics instance = null;
+    private ConcurrentHashMap<String, HostStat> stats;
+    private Random random;
+
+    public static class HostStat {
+        private double connectTime = 0; /* msec */
+        private double requestTime = 0; /* msec */
+        private double errorRate = 0;
+        private boolean hasConnectTime = false;
+        private boolean hasRequestTime = false;
+        private long lastUpdate = 0;
+
+        public synchronized void addConnectTime(long msec) {
+            connectTime = hasConnectTime ? ewma(connectTime, msec) : msec;
+            hasConnectTime = true;
+            errorRate = ewma(errorRate, 0);
+            lastUpdate = System.currentTimeMillis();
+        }
+
+        public synchronized void addRequestTime(long nanos) {
+            double msec = nanos / 1000000.0;
+            requestTime = hasRequestTime ? ewma(requestTime, msec) : msec;
+            hasRequestTime = true;
+            lastUpdate = System.currentTimeMillis();
+        }
+
+        public synchronized void addFailure() {
+            errorRate = ewma(errorRate, 1);
+            lastUpdate = System.currentTimeMillis();
+        }
+
+        /* -1 when there is no recent sample */
+        synchronized double getConnectTime(long now) {
+            return hasConnectTime && now - lastUpdate <= STAT_EXPIRE ? connectTime : -1;
+        }
+
+        /* -1 when there is no recent sample */
+        synchronized double getRequestTime(long now) {
+            return hasRequestTime && now - lastUpdate <= STAT_EXPIRE ? requestTime : -1;
+        }
+
+        /*
+         * Expected cost of a connection to this host. A time that has no
+         * recent sample is taken to be the prior, the average of the other
+         * hosts, so that a host is not preferred for being unknown.
+         */
+        synchronized double getCost(long now, double priorConnect, double priorRequest) {
+            if (now - lastUpdate > STAT_EXPIRE) {
+                return CONNECT_WEIGHT * priorConnect + REQUEST_WEIGHT * priorRequest;
+            }
+            double connect = hasConnectTime ? connectTime : priorConnect;
+            double request = hasRequestTime ? requestTime : priorRequest;
+            return CONNECT_WEIGHT * connect + REQUEST_WEIGHT * request + ERROR_PENALTY * errorRate;
+        }
+
+        private static double ewma(double avg, double sample) {
+            return avg + ALPHA * (sample - avg);
+        }
+    }
+
+    private UHostStatistics() {
+        stats = new ConcurrentHashMap<String, HostStat>();
+        random = new Random();
+    }
+
+    public static synchronized UHostStatistics getInstance() {
+        if (instance == null) {
+            instance = new UHostStatistics();
+        }
+
+        return instance;
+    }
+
+    public HostStat get(String host) {
+        HostStat stat = stats.get(host);
+        if (stat == null) {
+            HostStat newStat = new HostStat();
+            stat = stats.putIfAbsent(host, newStat);
+            if (stat == null) {
+                stat = newStat;
+            }
+        }
+        return stat;
+    }
+
+    /*
+     * Parses the loadBalanceWeights or replicaWeights property, a comma
+     * separated list of weights in the order of the hosts in the URL or in
+     * replicaHosts. Missing or invalid weights are 1.
+     */
+    public static Map<String, Integer> parseWeights(List<String> hosts, String weightList) {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+        if (weightList == null) {
+            return weights;
+        }
+
+        StringTokenizer st = new StringTokenizer(weightList, ",");
+        for (int i = 0; i < hosts.size() && st.hasMoreTokens(); i++) {
+            try {
+                int weight = Integer.parseInt(st.nextToken().trim());
+                if (weight > 0) {
+                    weights.put(hosts.get(i), weight);
+                }
+            } catch (NumberFormatException e) {
+                // use the default weight
+            }
+        }
+        return weights;
+    }
+
+    /*
+     * Orders the hosts by repeated power-of-two-choices: two hosts are drawn
+     * at random in proportion to their weights and the one with the lower
+     * cost per weight goes next.
+     */
+    public ArrayList<String> orderHosts(List<String> hosts, Map<String, Integer> weights) {
+        ArrayList<String> remaining = new ArrayList<String>(hosts);
+        ArrayList<String> ordered = new ArrayList<String>(hosts.size());
+        Map<String, Double> costs = getCosts(hosts, System.currentTimeMillis());
+
+        while (remaining.size() > 1) {
+            int first = pickWeighted(remaining, weights, -1);
+            int second = pickWeighted(remaining, weights, first);
+
+            String a = remaining.get(first);
+            String b = remaining.get(second);
+            int chosen = first;
+            if (costs.get(b) / getWeight(weights, b) < costs.get(a) / getWeight(weights, a)) {
+                chosen = second;
+            }
+            ordered.add(remaining.remove(chosen));
+        }
+        ordered.addAll(remaining);
+        return ordered;
+    }
+
+    private Map<String, Double> getCosts(List<String> hosts, long now) {
+        double connectSum = 0, requestSum = 0;
+        int connectCount = 0, requestCount = 0;
+        for (int i = 0; i < hosts.size(); i++) {
+            HostStat stat = get(hosts.get(i));
+            double connect = stat.getConnectTime(now);
+            if (connect >= 0) {
+                connectSum += connect;
+                connectCount++;
+            }
+            double request = stat.getRequestTime(now);
+            if (request >= 0) {
+                requestSum += request;
+                requestCount++;
+            }
+        }
+        double priorConnect = connectCount > 0 ? connectSum / connectCount : 0;
+        double priorRequest = requestCount > 0 ? requestSum / requestCount : 0;
+
+        Map<String, Double> costs = new HashMap<String, Double>();
+        for (int i = 0; i < hosts.size(); i++) {
+            String host = hosts.get(i);
+            costs.put(host, get(host).getCost(now, priorConnect, priorRequest));
+        }
+        return costs;
+    }
+
+    private int pickWeighted(List<String> hosts, Map<String, Integer> weights, int exclude) {
+        int total = 0;
+        for (int i = 0; i < hosts.size(); i++) {
+            if (i != exclude) total += getWeight(weights, hosts.get(i));
+        }
+
+        int r = random.nextInt(total);
+        for (int i = 0; i < hosts.size(); i++) {
+            if (i == exclude) continue;
+            r -= getWeight(weights, hosts.get(i));
+            if (r < 0) return i;
+        }
+        return hosts.size() - 1;
+    }
+
+    private static int getWeight(Map<String, Integer> weights, String host) {
+        Integer weight = weights.get(host);
+        return weight == null ? 1 : weight.intValue();
+    }
+}
@@ -50,33 +50,59 @@ import cubrid.sql.CUBRIDOIDImpl;
 import cubrid.sql.CUBRIDTimestamp;
 import cubrid.sql.CUBRIDTimestamptz;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.sql.Date;
 import java.sql.Time;
 import java.util.Calendar;
 import java.util.TimeZone;
 
 class UInputBuffer {
+
     private UTimedDataInputStream input;
     private int position;
     private int capacity;
+    /* for a streamed response, buffer holds bytes [windowBase, windowBase + limit) */
+    private boolean streaming = false;
+    private boolean retained = false;
+    private int windowBase = 0;
+    private int limit;
+    private int timeout;
     private byte casinfo[];
     private byte buffer[];
     private int resCode;
-    private static final int CAS_INFO_SIZE = 4;
     private UConnection uconn;
+    private UInputBufferPool pool;
 
     UInputBuffer(UTimedDataInputStream relatedI, UConnection con)
             throws IOException, UJciException {
+        this(relatedI, con, 0);
+    }
+
+    UInputBuffer(UTimedDataInputStream relatedI, UConnection con, int timeout)
+            throws IOException, UJciException {
+        this(relatedI, con, timeout, 0);
+    }
+
+    /*
+     * If window is positive and the response is larger than window, the body
+     * is not read at once but pulled from the socket while it is decoded.
+     * Such a buffer must be decoded and released while the connection lock
+     * is held.
+     */
+    UInputBuffer(UTimedDataInputStream relatedI, UConnection con, int timeout, int window)
+            throws IOException, UJciException {
         input = relatedI;
+        this.timeout = timeout;
         position = 0;
         uconn = con;
+        pool = con.getRecvBufferPool();
 
         int readLen = 0;
         int totalReadLen = 0;
-        byte[] headerData = new byte[8];
+        byte[] headerData = pool.getHeaderBuffer();
 
         while (totalReadLen < 8) {
-            readLen = input.read(headerData, totalReadLen, 8 - totalReadLen, 0);
+            readLen = input.read(headerData, totalReadLen, 8 - totalReadLen, timeout);
             if (readLen == -1) {
                 throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
             }
@@ -84,9 +110,7 @@ class UInputBuffer {
         }
 
         capacity = UJCIUtil.bytes2int(headerData, 0);
-        casinfo = new byte[CAS_INFO_SIZE];
-        System.arraycopy(headerData, 4, casinfo, 0, 4);
-        con.setCASInfo(casinfo);
+        casinfo = con.updateCASInfo(headerData, 4);
 
         if (capacity <= 0) {
             resCode = 0;
@@ -94,86 +118,186 @@ class UInputBuffer {
             return;
         }
 
-        buffer = new byte[capacity];
-        readData();
-
-        resCode = readInt();
-
-        if (resCode < 0) {
-            int eCode = readInt();
-            String msg;
-
-            if (con.isRenewedSessionId()) {
-                byte[] newSessionId = new byte[20];
-
-                msg =
-                        readString(
-                                remainedCapacity() - newSessionId.length,
-                                UJCIManager.sysCharsetName);
-                readBytes(newSessionId);
-                con.setNewSessionId(newSessionId);
+        try {
+            if (window > 0 && capacity > window) {
+                streaming = true;
+                buffer = pool.lease(window);
+                limit = 0;
             } else {
-                msg = readString(remainedCapacity(), UJCIManager.sysCharsetName);
+                buffer = pool.lease(capacity);
+                readData();
+                limit = capacity;
             }
+            resCode = readInt();
+        } catch (IOException e) {
+            release();
+            throw e;
+        } catch (UJciException e) {
+            release();
+            throw e;
+        }
 
-            eCode = convertErrorByVersion(resCode, eCode);
-            throw uconn.createJciException(UErrorCode.ER_DBMS, resCode, eCode, msg);
+        if (resCode < 0) {
+            try {
+                int eCode = readInt();
+                String msg;
+
+                if (con.isRenewedSessionId()) {
+                    byte[] newSessionId = new byte[20];
+
+                    msg =
+                            readString(
+                                    remainedCapacity() - newSessionId.length,
+                                    UJCIManager.sysCharsetName);
+                    readBytes(newSessionId);
+                    con.setNewSessionId(newSessionId);
+                } else {
+                    msg = readString(remainedCapacity(), UJCIManager.sysCharsetName);
+                }
+
+                eCode = convertErrorByVersion(resCode, eCode);
+                throw uconn.createJciException(UErrorCode.ER_DBMS, resCode, eCode, msg);
+            } finally {
+                release();
+            }
         }
     }
 
-    UInputBuffer(UTimedDataInputStream relatedI, UConnection con, int timeout)
-            throws IOException, UJciException {
-        input = relatedI;
+    /*
+     * Returns the receive buffer to the connection's pool.
+     * Must be called only after the response has been completely decoded.
+     */
+    void release() {
+        if (retained) {
+            return;
+        }
+        if (streaming && windowBase + limit < capacity) {
+            skipRemainder();
+        }
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
         position = 0;
-        uconn = con;
+        windowBase = 0;
+        limit = 0;
+        capacity = 0;
+    }
 
-        int readLen = 0;
-        int totalReadLen = 0;
-        byte[] headerData = new byte[8];
+    /* gives the buffer back without reading the rest; the socket is going away */
+    void discard() {
+        streaming = false;
+        release();
+    }
 
-        while (totalReadLen < 8) {
-            readLen = input.read(headerData, totalReadLen, 8 - totalReadLen, timeout);
-            if (readLen == -1) {
-                throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /*
+     * Keeps the received bytes alive for lazily decoded tuples.
+     * The buffer is left to the garbage collector instead of the pool.
+     */
+    void retain() {
+        retained = true;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void position(int pos) {
+        position = pos;
+    }
+
+    void skipBytes(int size) throws UJciException {
+        ensure(size);
+        position += size;
+    }
+
+    /*
+     * Reads the rest of a streamed response into memory so that the socket
+     * can carry the next request; the undecoded bytes stay readable.
+     */
+    void readRemainder() throws UJciException {
+        if (!streaming) {
+            return;
+        }
+        int unread = limit - position;
+        int size = unread + capacity - windowBase - limit;
+        byte[] newBuffer = pool.lease(size);
+        System.arraycopy(buffer, position, newBuffer, 0, unread);
+        pool.release(buffer);
+        buffer = newBuffer;
+        windowBase += position;
+        position = 0;
+        limit = unread;
+
+        try {
+            while (limit < size) {
+                int n = input.read(buffer, limit, size - limit, timeout);
+                if (n < 0) {
+                    throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
+                }
+                limit += n;
             }
-            totalReadLen = totalReadLen + readLen;
+        } catch (IOException e) {
+            throw new UJciException(UErrorCode.ER_COMMUNICATION, e);
         }
+        streaming = false;
+    }
 
-        capacity = UJCIUtil.bytes2int(headerData, 0);
-        casinfo = new byte[CAS_INFO_SIZE];
-        System.arraycopy(headerData, 4, casinfo, 0, 4);
-        con.setCASInfo(casinfo);
+    /* keeps the stream in sync when a streamed response is not fully decoded */
+    private void skipRemainder() {
+        try {
+            int remain = capacity - windowBase - limit;
+            while (remain > 0) {
+                int n = input.read(buffer, 0, Math.min(remain, buffer.length), timeout);
+                if (n < 0) {
+                    break;
+                }
+                remain -= n;
+            }
+        } catch (Exception e) {
+            uconn.logException(e);
+            /* the next request fails and reconnects */
+            uconn.closeSocket();
+        }
+    }
 
-        if (capacity <= 0) {
-            resCode = 0;
-            capacity = 0;
+    private void ensure(int size) throws UJciException {
+        if (position + size <= limit) {
             return;
         }
+        if (size < 0 || windowBase + position + size > capacity) {
+            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
+        }
 
-        buffer = new byte[capacity];
-        readData();
-
-        resCode = readInt();
+        /* only a streamed response can get here */
+        int remain = limit - position;
+        if (size > buffer.length) {
+            byte[] newBuffer = pool.lease(size);
+            System.arraycopy(buffer, position, newBuffer, 0, remain);
+            pool.release(buffer);
+            buffer = newBuffer;
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remain);
+        }
+        windowBase += position;
+        position = 0;
+        limit = remain;
 
-        if (resCode < 0) {
-            int eCode = readInt();
-            String msg;
-
-            if (con.isRenewedSessionId()) {
-                byte[] newSessionId = new byte[20];
-
-                msg =
-                        readString(
-                                remainedCapacity() - newSessionId.length,
-                                UJCIManager.sysCharsetName);
-                readBytes(newSessionId);
-                con.setNewSessionId(newSessionId);
-            } else {
-                msg = readString(remainedCapacity(), UJCIManager.sysCharsetName);
+        int want = Math.min(buffer.length, capacity - windowBase);
+        try {
+            while (limit < size) {
+                int n = input.read(buffer, limit, want - limit, timeout);
+                if (n < 0) {
+                    throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
+                }
+                limit += n;
             }
-
-            eCode = convertErrorByVersion(resCode, eCode);
-            throw uconn.createJciException(UErrorCode.ER_DBMS, resCode, eCode, msg);
+        } catch (IOException e) {
+            throw new UJciException(UErrorCode.ER_COMMUNICATION, e);
         }
     }
 
@@ -199,9 +323,7 @@ class UInputBuffer {
     }
 
     byte readByte() throws UJciException {
-        if (position >= capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(1);
 
         return buffer[position++];
     }
@@ -209,9 +331,7 @@ class UInputBuffer {
     void readBytes(byte value[], int offset, int len) throws UJciException {
         if (value == null) return;
 
-        if (position + len > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(len);
 
         System.arraycopy(buffer, position, value, offset, len);
         position += len;
@@ -236,9 +356,7 @@ class UInputBuffer {
     }
 
     int readInt() throws UJciException {
-        if (position + 4 > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(4);
 
         int data = UJCIUtil.bytes2int(buffer, position);
         position += 4;
@@ -249,9 +367,7 @@ class UInputBuffer {
     long readLong() throws UJciException {
         long data = 0;
 
-        if (position + 8 > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(8);
 
         for (int i = 0; i < 8; i++) {
             data <<= 8;
@@ -262,9 +378,7 @@ class UInputBuffer {
     }
 
     short readShort() throws UJciException {
-        if (position + 2 > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(2);
 
         short data = UJCIUtil.bytes2short(buffer, position);
         position += 2;
@@ -273,23 +387,20 @@ class UInputBuffer {
     }
 
     String readString(int size, String charsetName) throws UJciException {
+        return readString(size, UJCIUtil.getCharset(charsetName));
+    }
+
+    String readString(int size, Charset charset) throws UJciException {
         String stringData;
 
         if (size <= 0) return null;
 
-        if (position + size > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(size);
 
-        if (charsetName != null) {
-            try {
-                stringData = new String(buffer, position, size - 1, charsetName);
-            } catch (java.io.UnsupportedEncodingException e) {
-                stringData = new String(buffer, position, size - 1);
-            }
-        } else {
-            stringData = new String(buffer, position, size - 1);
+        if (charset == null) {
+            charset = Charset.defaultCharset();
         }
+        stringData = new String(buffer, position, size - 1, charset);
 
         position += size;
 
@@ -301,9 +412,7 @@ class UInputBuffer {
 
         if (size <= 0) return null;
 
-        if (position + size > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(size);
 
         byteArray = java.util.Arrays.copyOfRange(buffer, position, position + size - 1);
 
@@ -393,9 +502,7 @@ class UInputBuffer {
         int tmp_position;
         int ts_size;
 
-        if (position + size > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(size);
 
         tmp_position = position;
         cubrid_ts = readTimestamp(true);
@@ -453,9 +560,7 @@ class UInputBuffer {
         int tmp_position;
         int ts_size;
 
-        if (position + size > capacity) {
-            throw uconn.createJciException(UErrorCode.ER_ILLEGAL_DATA_SIZE);
-        }
+        ensure(size);
 
         tmp_position = position;
         cubrid_ts = readDatetime(true);
@@ -507,7 +612,7 @@ class UInputBuffer {
     }
 
     int remainedCapacity() {
-        return capacity - position;
+        return capacity - windowBase - position;
     }
 
     CUBRIDXid readXid() throws UJciException {
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.jci;
+
+/*
+ * Receive buffer pool of a connection.
+ * Buffers are kept in power-of-two size classes; the total size of the
+ * retained buffers never exceeds maxRetainedBytes, so a huge response does
+ * not pin its buffer after it has been decoded.
+ */
+class UInputBufferPool {
+    private static final int MIN_CLASS_SHIFT = 10; /* 1 KB */
+    private static final int MAX_CLASS_SHIFT = 26; /* 64 MB */
+    private static final int BUFFERS_PER_CLASS = 4;
+
+    private final byte[][][] freeBuffers;
+    private final int[] freeCount;
+    private final int maxRetainedBytes;
+    private int retainedBytes;
+
+    private final byte[] headerBuffer = new byte[8];
+
+    UInputBufferPool(int maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        freeBuffers = new byte[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1][BUFFERS_PER_CLASS][];
+        freeCount = new int[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+    }
+
+    /* only used while the connection lock is held */
+    byte[] getHeaderBuffer() {
+        return headerBuffer;
+    }
+
+    synchronized byte[] lease(int size) {
+        int sizeClass = sizeClassOf(size);
+        if (sizeClass < 0 || classSize(sizeClass) > maxRetainedBytes) {
+            /* never retained, so do not round it up */
+            return new byte[size];
+        }
+
+        if (freeCount[sizeClass] > 0) {
+            int idx = --freeCount[sizeClass];
+            byte[] buf = freeBuffers[sizeClass][idx];
+            freeBuffers[sizeClass][idx] = null;
+            retainedBytes -= buf.length;
+            return buf;
+        }
+
+        return new byte[classSize(sizeClass)];
+    }
+
+    synchronized void release(byte[] buf) {
+        if (buf == null) {
+            return;
+        }
+
+        int sizeClass = sizeClassOf(buf.length);
+        if (sizeClass < 0 || buf.length != classSize(sizeClass)) {
+            return;
+        }
+        if (freeCount[sizeClass] >= BUFFERS_PER_CLASS
+                || retainedBytes + buf.length > maxRetainedBytes) {
+            return;
+        }
+
+        freeBuffers[sizeClass][freeCount[sizeClass]++] = buf;
+        retainedBytes += buf.length;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < freeBuffers.length; i++) {
+            for (int j = 0; j < freeCount[i]; j++) {
+                freeBuffers[i][j] = null;
+            }
+            freeCount[i] = 0;
+        }
+        retainedBytes = 0;
+    }
+
+    private static int classSize(int sizeClass) {
+        return 1 << (sizeClass + MIN_CLASS_SHIFT);
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size > (1 << MAX_CLASS_SHIFT)) {
+            return -1;
+        }
+        if (size <= (1 << MIN_CLASS_SHIFT)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+    }
+}
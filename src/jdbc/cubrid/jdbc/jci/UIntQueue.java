@@ -1,5 +1,4 @@
 /*
- * Copyright (C) 2008 Search Solution Corporation.
  * Copyright (c) 2016 CUBRID Corporation.
  *
  * Redistribution and use in source and binary forms, with or without modification,
@@ -29,42 +28,56 @@
  *
  */
 
-package cubrid.jdbc.driver;
+package cubrid.jdbc.jci;
 
-/**
- * Title: CUBRID JDBC Driver Description:
- *
- * @version 2.0
+/*
+ * FIFO queue of int values backed by a growing ring buffer. The methods are
+ * synchronized, so statements can add to the queue without holding the
+ * connection lock.
  */
+class UIntQueue {
+    private int[] values;
+    private int head = 0;
+    private int size = 0;
 
-/** This class implements query timeout feature for CUBRIDStatement, CUBRIDPreparedStatement */
-class CUBRIDCancelQueryThread extends Thread {
-
-    private int timeout;
+    UIntQueue() {
+        values = new int[16];
+    }
 
-    private CUBRIDStatement stmt;
+    synchronized void add(int value) {
+        if (size == values.length) {
+            int[] grown = new int[values.length * 2];
+            for (int i = 0; i < size; i++) {
+                grown[i] = values[(head + i) % values.length];
+            }
+            values = grown;
+            head = 0;
+        }
+        values[(head + size) % values.length] = value;
+        size++;
+    }
 
-    private boolean end = false;
+    /* removes all values and returns them in the order they were added */
+    synchronized int[] drain() {
+        int[] drained = new int[size];
+        for (int i = 0; i < size; i++) {
+            drained[i] = values[(head + i) % values.length];
+        }
+        head = 0;
+        size = 0;
+        return drained;
+    }
 
-    CUBRIDCancelQueryThread(CUBRIDStatement cancel_stmt, int time) {
-        stmt = cancel_stmt;
-        timeout = time;
+    synchronized boolean isEmpty() {
+        return size == 0;
     }
 
-    public void run() {
-        try {
-            Thread.sleep(timeout * 1000);
-            synchronized (this) {
-                if (end == false) {
-                    stmt.cancel();
-                }
-            }
-        } catch (Exception e) {
-        }
+    synchronized int size() {
+        return size;
     }
 
-    synchronized void queryended() {
-        end = true;
-        interrupt();
+    synchronized void clear() {
+        head = 0;
+        size = 0;
     }
 }
@@ -34,6 +34,10 @@ package cubrid.jdbc.jci;
 import cubrid.jdbc.driver.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,6 +50,21 @@ public abstract class UJCIUtil {
     private static Boolean bMysqlMode = null;
     private static Boolean bOracleMode = null;
 
+    private static final ConcurrentHashMap<String, Charset> charsetCache =
+            new ConcurrentHashMap<String, Charset>();
+    private static final Set<Charset> asciiCompatibleCharsets = new HashSet<Charset>();
+
+    static {
+        String names[] = {"US-ASCII", "ISO-8859-1", "UTF-8", "EUC-KR"};
+        for (int i = 0; i < names.length; i++) {
+            try {
+                asciiCompatibleCharsets.add(Charset.forName(names[i]));
+            } catch (IllegalArgumentException e) {
+                // not supported in this runtime
+            }
+        }
+    }
+
     static {
         String value = System.getProperty("ConsoleDebug");
         if (value != null && value.equals("true")) {
@@ -265,4 +284,47 @@ public abstract class UJCIUtil {
         }
         return null;
     }
+
+    /*
+     * Returns the cached Charset of a java charset name.
+     * null or unsupported names give the default charset as new String(byte[]) does.
+     */
+    public static Charset getCharset(String charsetName) {
+        if (charsetName == null) {
+            return Charset.defaultCharset();
+        }
+
+        Charset charset = charsetCache.get(charsetName);
+        if (charset == null) {
+            try {
+                charset = Charset.forName(charsetName);
+            } catch (IllegalArgumentException e) {
+                charset = Charset.defaultCharset();
+            }
+            charsetCache.put(charsetName, charset);
+        }
+        return charset;
+    }
+
+    public static Charset getJavaCharset(byte cubridCharset) {
+        return getCharset(getJavaCharsetName(cubridCharset));
+    }
+
+    /* bytes under 0x80 decode to the same chars in these charsets */
+    public static boolean isAsciiCompatible(Charset charset) {
+        return asciiCompatibleCharsets.contains(charset);
+    }
+
+    /* the first word of sql, or "" if sql does not start with a word */
+    public static String getLeadingKeyword(String sql) {
+        int begin = 0;
+        while (begin < sql.length() && Character.isWhitespace(sql.charAt(begin))) {
+            begin++;
+        }
+        int end = begin;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return sql.substring(begin, end);
+    }
 }
@@ -49,6 +49,10 @@ import cubrid.sql.CUBRIDOID;
 import cubrid.sql.CUBRIDTimestamptz;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -60,6 +64,9 @@ class UOutputBuffer {
     private UConnection u_con;
     private OutputStream output;
     private ByteArrayBuffer dataBuffer;
+    /* reused for every string of this connection */
+    private CharsetEncoder encoder;
+    private boolean asciiCompatible;
 
     UOutputBuffer(UConnection ucon) throws IOException {
         this.u_con = ucon;
@@ -72,7 +79,12 @@ class UOutputBuffer {
     }
 
     void sendData() throws IOException {
-        dataBuffer.writeToStream(u_con.getCASInfo(), output);
+        GatheringByteChannel channel = u_con.getOutputChannel();
+        if (channel != null) {
+            dataBuffer.writeToChannel(u_con.getCASInfo(), channel);
+        } else {
+            dataBuffer.writeToStream(u_con.getCASInfo(), output);
+        }
         initBuffer();
     }
 
@@ -122,18 +134,16 @@ class UOutputBuffer {
     }
 
     int addStringWithNull(String str) throws IOException {
-        byte[] b;
-
-        try {
-            b = str.getBytes(u_con.getCharset());
-        } catch (java.io.UnsupportedEncodingException e) {
-            b = str.getBytes();
+        Charset charset = UJCIUtil.getCharset(u_con.getCharset());
+        if (encoder == null || !encoder.charset().equals(charset)) {
+            encoder =
+                    charset.newEncoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            asciiCompatible = UJCIUtil.isAsciiCompatible(charset);
         }
 
-        dataBuffer.writeInt(b.length + 1);
-        dataBuffer.write(b, 0, b.length);
-        dataBuffer.writeByte((byte) 0);
-        return b.length + 5;
+        return dataBuffer.writeStringWithNull(str, encoder, asciiCompatible) + 5;
     }
 
     int addBinaryString(CUBRIDBinaryString binary_string) {
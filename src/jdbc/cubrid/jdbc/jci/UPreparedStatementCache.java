@@ -30,41 +30,150 @@
 
 package cubrid.jdbc.jci;
 
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class UPreparedStatementCache<K, V> extends LinkedHashMap<K, V> {
-    private static final long serialVersionUID = 1L;
+/*
+ * Bounded cache of prepared statements. Lookups read a ConcurrentHashMap
+ * without locking and only mark the entry as used. Puts and removals take
+ * the lock and keep the entries in a list in insertion order; when the
+ * cache is full the list is swept like a clock: a used entry is unmarked
+ * and moved to the tail, the first unused one is evicted. Entries pushed
+ * out are passed to evicted() after the lock is released.
+ */
+public class UPreparedStatementCache<K, V> {
     protected int maxCacheSize;
 
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    /* sentinel of the list in insertion order, guarded by this */
+    private final Node<K, V> head = new Node<K, V>(null, null);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long evictions = 0;
+
+    private static class Node<K, V> {
+        final K key;
+        final V value;
+        volatile boolean used = false;
+        Node<K, V> prev = this;
+        Node<K, V> next = this;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
     public UPreparedStatementCache(int maxCacheSize) {
-        super(maxCacheSize, 0.75F, true);
         this.maxCacheSize = maxCacheSize;
+        map = new ConcurrentHashMap<K, Node<K, V>>(maxCacheSize * 4 / 3 + 1);
     }
 
-    @Override
-    public V get(Object key) {
-        synchronized (this) {
-            return super.get(key);
+    public V get(K key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        node.used = true;
+        hits.incrementAndGet();
+        return node.value;
+    }
+
+    /* true if value is what key maps to; counts as a use but not as a hit */
+    public boolean isCached(K key, V value) {
+        Node<K, V> node = map.get(key);
+        if (node == null || node.value != value) {
+            return false;
         }
+        node.used = true;
+        return true;
     }
 
-    @Override
     public V put(K key, V value) {
+        V old = null;
+        List<Node<K, V>> removed = new ArrayList<Node<K, V>>(1);
         synchronized (this) {
-            return super.put(key, value);
+            Node<K, V> node = new Node<K, V>(key, value);
+            Node<K, V> oldNode = map.put(key, node);
+            if (oldNode != null) {
+                old = oldNode.value;
+                unlink(oldNode);
+                if (old != value) {
+                    removed.add(oldNode);
+                }
+            }
+            linkLast(node);
+
+            /* bounded, since gets may mark entries again meanwhile */
+            int chances = map.size();
+            while (map.size() > maxCacheSize) {
+                Node<K, V> eldest = head.next;
+                unlink(eldest);
+                if (eldest.used && eldest != node && chances-- > 0) {
+                    /* second chance */
+                    eldest.used = false;
+                    linkLast(eldest);
+                    continue;
+                }
+                map.remove(eldest.key, eldest);
+                removed.add(eldest);
+            }
+            evictions += removed.size();
+        }
+
+        for (int i = 0; i < removed.size(); i++) {
+            evicted(removed.get(i).key, removed.get(i).value);
         }
+        return old;
     }
 
-    @Override
-    public V remove(Object key) {
-        synchronized (this) {
-            return super.remove(key);
+    public synchronized V remove(K key) {
+        Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
         }
+        unlink(node);
+        return node.value;
+    }
+
+    /* drops every entry without calling evicted() */
+    public synchronized void clear() {
+        map.clear();
+        head.prev = head.next = head;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /* called after value was pushed out of the cache */
+    protected void evicted(K key, V value) {}
+
+    private void linkLast(Node<K, V> node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
     }
 
-    @Override
-    protected boolean removeEldestEntry(Entry<K, V> eldest) {
-        return (size() > this.maxCacheSize);
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = node;
     }
 }
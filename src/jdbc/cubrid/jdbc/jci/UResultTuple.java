@@ -47,6 +47,9 @@ class UResultTuple {
     private CUBRIDOID oid;
     // private boolean wasNull[] = {};
     private Object attributes[];
+    /* lazy decoding : raw response and offset of each undecoded attribute */
+    private UInputBuffer rawData;
+    private int rawOffset[];
 
     UResultTuple(int tupleIndex, int attributeNumber) {
         index = tupleIndex;
@@ -59,6 +62,8 @@ class UResultTuple {
         attributes = null;
         // wasNull = null;
         oid = null;
+        rawData = null;
+        rawOffset = null;
     }
 
     Object getAttribute(int tIndex) {
@@ -69,6 +74,18 @@ class UResultTuple {
         return attributes[tIndex];
     }
 
+    UInputBuffer getRawData() {
+        return rawData;
+    }
+
+    int getRawOffset(int tIndex) {
+        return rawOffset[tIndex];
+    }
+
+    boolean isDecoded(int tIndex) {
+        return rawOffset == null || rawOffset[tIndex] < 0;
+    }
+
     CUBRIDOID getOid() {
         return oid;
     }
@@ -86,6 +103,16 @@ class UResultTuple {
          */
 
         attributes[tIndex] = data;
+        if (rawOffset != null) rawOffset[tIndex] = -1;
+    }
+
+    void setRawAttribute(int tIndex, UInputBuffer data, int offset) {
+        if (rawOffset == null) {
+            rawOffset = new int[attributes.length];
+            for (int i = 0; i < rawOffset.length; i++) rawOffset[i] = -1;
+        }
+        rawData = data;
+        rawOffset[tIndex] = offset;
     }
 
     void setOid(CUBRIDOID o) {
@@ -48,6 +48,7 @@ import cubrid.sql.CUBRIDTimestamptz;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.MathContext;
+import java.nio.charset.Charset;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -93,6 +94,15 @@ public class UStatement {
     private boolean isSensitive;
 
     private int serverHandler;
+    /* deferred close queue of the CAS that holds serverHandler */
+    private UIntQueue closeQueue;
+    /* closed by park() while its CAS is not in use */
+    private boolean parked = false;
+    /* handle of the same statement on the CAS used before the last move */
+    private UIntQueue spareQueue;
+    private int spareHandler;
+    /* the result of the last execution is not closed yet */
+    private volatile boolean resultOpen = false;
     private int parameterNumber;
     private int columnNumber;
     private UBindParameter bindParameter;
@@ -115,6 +125,14 @@ public class UStatement {
     private int cursorPosition;
     private int executeResult;
     private UResultTuple tuples[];
+    /*
+     * Streamed fetch whose tuples from pendingTuple on are decoded when the
+     * cursor reaches them; guarded by the connection lock.
+     */
+    private volatile UInputBuffer pendingBuffer;
+    private int pendingTuple;
+    /* reported for the rows from pendingTuple on once their bytes are lost */
+    private UJciException pendingError;
     private int numQueriesExecuted;
 
     private UError errorHandler;
@@ -125,6 +143,7 @@ public class UStatement {
     private String sql_stmt;
     private byte prepare_flag;
     private UInputBuffer tmp_inbuffer;
+    private boolean prepareOnExecute = false;
     private boolean isAutoCommit = false;
     private boolean isGeneratedKeys = false;
 
@@ -153,6 +172,7 @@ public class UStatement {
             prepare_flag = _prepare_flag;
         } else {
             init(relatedC, inBuffer, sql, _prepare_flag, true);
+            inBuffer.release();
         }
 
         if (result_cacheable
@@ -163,6 +183,18 @@ public class UStatement {
         } else result_cacheable = false;
     }
 
+    UStatement(UConnection relatedC, String sql, byte _prepare_flag) {
+        errorHandler = new UError(relatedC);
+        sql_stmt = sql;
+        prepare_flag = _prepare_flag;
+        outBuffer = relatedC.outBuffer;
+        statementType = NORMAL;
+        relatedConnection = relatedC;
+        serverHandler = -1;
+        prepareOnExecute = true;
+        fetchSize = DEFAULT_FETCH_SIZE;
+    }
+
     private void init(
             UConnection relatedC,
             UInputBuffer inBuffer,
@@ -175,7 +207,24 @@ public class UStatement {
         outBuffer = relatedC.outBuffer;
         statementType = NORMAL;
         relatedConnection = relatedC;
+        closeQueue = relatedC.deferred_close_handle;
 
+        readPrepareInfo(inBuffer, clear_bind_info);
+        fetchSize = DEFAULT_FETCH_SIZE;
+        isFetchCompleted = false;
+        currentFirstCursor = cursorPosition = totalTupleNumber = fetchedTupleNumber = 0;
+        maxFetchSize = 0;
+        realFetched = false;
+        isClosed = false;
+
+        /*
+         * 3.0 resultset_index = 0; resultset_index_flag =
+         * java.sql.Statement.CLOSE_CURRENT_RESULT;
+         */
+    }
+
+    private void readPrepareInfo(UInputBuffer inBuffer, boolean clear_bind_info)
+            throws UJciException {
         serverHandler = inBuffer.getResCode();
         result_cache_lifetime = inBuffer.readInt();
         if (result_cache_lifetime >= 0 && UJCIManager.result_cache_enable) result_cacheable = true;
@@ -195,20 +244,9 @@ public class UStatement {
             }
             batchParameter = null;
         }
-        fetchSize = DEFAULT_FETCH_SIZE;
-        isFetchCompleted = false;
-        currentFirstCursor = cursorPosition = totalTupleNumber = fetchedTupleNumber = 0;
-        maxFetchSize = 0;
-        realFetched = false;
-        isClosed = false;
 
         if (commandTypeIs == CUBRIDCommandType.CUBRID_STMT_CALL_SP)
             columnNumber = parameterNumber + 1;
-
-        /*
-         * 3.0 resultset_index = 0; resultset_index_flag =
-         * java.sql.Statement.CLOSE_CURRENT_RESULT;
-         */
     }
 
     public void initToReuse() throws UJciException {
@@ -242,6 +280,7 @@ public class UStatement {
         tuples = new UResultTuple[fetchSize];
 
         readATupleByOid(oid, inBuffer);
+        inBuffer.release();
 
         bindParameter = null;
         batchParameter = null;
@@ -276,6 +315,7 @@ public class UStatement {
         totalTupleNumber = inBuffer.readInt();
         columnNumber = inBuffer.readInt();
         readColumnInfo(inBuffer);
+        inBuffer.release();
 
         fetchSize = DEFAULT_FETCH_SIZE;
         currentFirstCursor = cursorPosition = fetchedTupleNumber = 0;
@@ -322,6 +362,7 @@ public class UStatement {
         isUpdatable = (inBuffer.readByte() == 1) ? true : false;
         columnNumber = inBuffer.readInt();
         readColumnInfo(inBuffer);
+        inBuffer.release();
 
         executeResult = totalTupleNumber;
     }
@@ -583,44 +624,59 @@ public class UStatement {
     }
 
     public synchronized void close(boolean close_srv_handle) {
+        if (parked) {
+            /* the handle is closed when its CAS is in use again */
+            parked = false;
+            isClosed = false;
+        }
         if (isClosed == true) {
             errorHandler.setErrorCode(UErrorCode.ER_IS_CLOSED);
             return;
         }
+        /* tested before isClosed is set, getSqlType() is false for a closed statement */
+        boolean isQuery = getSqlType();
         relatedConnection.pooled_ustmts.remove(this);
         currentFirstCursor = cursorPosition = totalTupleNumber = fetchedTupleNumber = 0;
         isClosed = true;
+        resultOpen = false;
         if (stmt_cache != null) {
             stmt_cache.decr_ref_count();
         }
 
         try {
             if (close_srv_handle
+                    && !prepareOnExecute
                     && (relatedConnection.getAutoCommit() == false
                             || relatedConnection.brokerInfoStatementPooling() == true
                             || ((prepare_flag & UConnection.PREPARE_HOLDABLE) != 0))) {
-                if (getSqlType()) {
-                    synchronized (relatedConnection) {
+                synchronized (relatedConnection) {
+                    UIntQueue current = relatedConnection.deferred_close_handle;
+                    UIntQueue queue = closeQueue != null ? closeQueue : current;
+                    if (isQuery && queue == current && relatedConnection.client != null) {
+                        /* the CAS ends an auto commit transaction when its query is closed */
                         outBuffer.newRequest(UFunctionCode.CLOSE_USTATEMENT);
                         outBuffer.addInt(serverHandler);
                         outBuffer.addByte(relatedConnection.getAutoCommit() ? (byte) 1 : (byte) 0);
-                        relatedConnection.send_recv_msg();
+                        relatedConnection.send_recv_msg().release();
+                    } else {
+                        /* sent along with the next request on the CAS of the handle */
+                        queue.add(serverHandler);
                     }
-                } else {
-                    relatedConnection.deferred_close_handle.add(new Integer(serverHandler));
+                }
+                if (spareQueue != null) {
+                    spareQueue.add(spareHandler);
                 }
             }
         } catch (UJciException e) {
             if (relatedConnection.isActive()) {
-                e.setStackTrace(e.getStackTrace());
                 e.toUError(errorHandler);
             }
         } catch (IOException e) {
             if (relatedConnection.isActive()) {
-                e.setStackTrace(e.getStackTrace());
                 errorHandler.setErrorCode(UErrorCode.ER_COMMUNICATION);
             }
         } finally {
+            spareQueue = null;
             currentFirstCursor = cursorPosition = totalTupleNumber = fetchedTupleNumber = 0;
             isClosed = true;
             if (stmt_cache != null) stmt_cache.decr_ref_count();
@@ -645,6 +701,9 @@ public class UStatement {
             errorHandler.setErrorCode(UErrorCode.ER_INVALID_ARGUMENT);
             return false;
         }
+        if (!decodeTuplesTo(cursorPosition - currentFirstCursor)) {
+            return false;
+        }
         if (tuples[cursorPosition - currentFirstCursor].oidIsIncluded() == false) {
             errorHandler.setErrorCode(UErrorCode.ER_OID_IS_NOT_INCLUDED);
             return false;
@@ -668,21 +727,13 @@ public class UStatement {
             return;
         }
 
-        try {
-            UFunctionCode code = UFunctionCode.CURSOR_CLOSE;
-            if (relatedConnection.protoVersionIsSame(UConnection.PROTOCOL_V2)) {
-                code = UFunctionCode.CURSOR_CLOSE_FOR_PROTOCOL_V2;
-            }
-            outBuffer.newRequest(code);
-            outBuffer.addInt(serverHandler);
-            relatedConnection.send_recv_msg();
-        } catch (UJciException e) {
-            relatedConnection.logException(e);
-            e.toUError(errorHandler);
-        } catch (IOException e) {
-            relatedConnection.logException(e);
-            errorHandler.setErrorCode(UErrorCode.ER_COMMUNICATION);
+        /* the handle is closed or belongs to another CAS */
+        if (isClosed) {
+            return;
         }
+
+        /* sent along with the next request on this connection */
+        relatedConnection.deferred_cursor_close.add(serverHandler);
     }
 
     public synchronized void deleteCursor(int cursor) {
@@ -699,6 +750,9 @@ public class UStatement {
             errorHandler.setErrorCode(UErrorCode.ER_INVALID_ARGUMENT);
             return;
         }
+        if (!decodeTuplesTo(cursorPosition - currentFirstCursor)) {
+            return;
+        }
         if (tuples[cursorPosition - currentFirstCursor].oidIsIncluded() == false) {
             errorHandler.setErrorCode(UErrorCode.ER_OID_IS_NOT_INCLUDED);
             return;
@@ -750,9 +804,25 @@ public class UStatement {
             throws IOException, UJciException {
         byte is_auto_commit = (byte) 0, is_forward_only = (byte) 0;
         long remainingTime = 0;
-
-        outBuffer.newRequest(UFunctionCode.EXECUTE);
-        outBuffer.addInt(serverHandler);
+        boolean fetch;
+
+        if (prepareOnExecute) {
+            /* the prepare arguments, then the execute arguments without a handle */
+            outBuffer.newRequest(UFunctionCode.PREPARE_AND_EXECUTE);
+            int[] close_handles = relatedConnection.deferred_close_handle.drain();
+            outBuffer.addInt(3 + close_handles.length);
+            outBuffer.addStringWithNull(sql_stmt);
+            outBuffer.addByte(prepare_flag);
+            outBuffer.addByte(relatedConnection.getAutoCommit() ? (byte) 1 : (byte) 0);
+            for (int i = 0; i < close_handles.length; i++) {
+                outBuffer.addInt(close_handles[i]);
+            }
+            fetch = isSelectText();
+        } else {
+            outBuffer.newRequest(UFunctionCode.EXECUTE);
+            outBuffer.addInt(serverHandler);
+            fetch = firstStmtType == CUBRIDCommandType.CUBRID_STMT_SELECT;
+        }
         outBuffer.addByte(executeFlag);
         outBuffer.addInt(maxField < 0 ? 0 : maxField);
         outBuffer.addInt(0);
@@ -764,7 +834,7 @@ public class UStatement {
         }
 
         /* fetch flag */
-        if (firstStmtType == CUBRIDCommandType.CUBRID_STMT_SELECT) {
+        if (fetch) {
             outBuffer.addByte((byte) 1);
         } else {
             outBuffer.addByte((byte) 0);
@@ -817,9 +887,13 @@ public class UStatement {
         }
     }
 
-    private void fetchResultData(UInputBuffer inBuffer, UStatementCacheData cacheData)
+    private void fetchResultData(
+            UInputBuffer inBuffer,
+            UStatementCacheData cacheData,
+            int resultCount,
+            boolean includesFetch)
             throws UJciException {
-        executeResult = inBuffer.getResCode();
+        executeResult = resultCount;
         if (maxFetchSize > 0) {
             executeResult = Math.min(maxFetchSize, executeResult);
         }
@@ -835,7 +909,9 @@ public class UStatement {
         }
         // --
 
-        if (commandTypeIs == CUBRIDCommandType.CUBRID_STMT_SELECT && totalTupleNumber > 0) {
+        if (commandTypeIs == CUBRIDCommandType.CUBRID_STMT_SELECT
+                && totalTupleNumber > 0
+                && includesFetch) {
             inBuffer.readInt(); // fetch_rescode
             read_fetch_data(inBuffer, UFunctionCode.FETCH);
         }
@@ -863,30 +939,75 @@ public class UStatement {
         errorHandler.clear();
         relatedConnection.setShardId(UShardInfo.SHARD_ID_INVALID);
 
-        synchronized (relatedConnection) {
-            writeExecuteRequest(maxField, isScrollable, queryTimeout, cacheData);
-            inBuffer = relatedConnection.send_recv_msg();
+        if (prepareOnExecute) {
+            synchronized (relatedConnection) {
+                relatedConnection.skip_checkcas = true;
+                try {
+                    relatedConnection.checkReconnect();
+                } finally {
+                    relatedConnection.skip_checkcas = false;
+                }
+            }
         }
 
-        // cache reusable
-        byte cache_reusable = inBuffer.readByte();
-        if (cacheData != null && cache_reusable == (byte) 1) {
-            /* get data from cache */
-            getCacheData(cacheData);
-            stmt_cache_data = cacheData;
-            tuples = cacheData.getTuples(0);
-            return;
+        if (relatedConnection.useStreamingFetch()) {
+            synchronized (relatedConnection) {
+                writeExecuteRequest(maxField, isScrollable, queryTimeout, cacheData);
+                inBuffer = relatedConnection.send_recv_msg_streaming();
+                readExecuteResult(inBuffer, cacheData);
+            }
+        } else {
+            synchronized (relatedConnection) {
+                writeExecuteRequest(maxField, isScrollable, queryTimeout, cacheData);
+                inBuffer = relatedConnection.send_recv_msg();
+            }
+            readExecuteResult(inBuffer, cacheData);
         }
-        // --
+    }
 
-        readResultInfo(inBuffer);
-        readResultMeta(inBuffer);
+    private void readExecuteResult(UInputBuffer inBuffer, UStatementCacheData cacheData)
+            throws UJciException {
+        try {
+            int resultCount = inBuffer.getResCode();
+            boolean includesFetch = true;
+            if (prepareOnExecute) {
+                /* the prepare result comes first, then the execute result */
+                readPrepareInfo(inBuffer, true);
+                resultCount = inBuffer.readInt();
+                includesFetch = isSelectText();
+                prepareOnExecute = false;
+                result_cacheable = false;
+                if (firstStmtType == CUBRIDCommandType.CUBRID_STMT_CALL_SP) {
+                    cursorPosition = 0;
+                }
+                closeQueue = relatedConnection.deferred_close_handle;
+                relatedConnection.pooled_ustmts.add(this);
+            }
 
-        if (relatedConnection.protoVersionIsAbove(UConnection.PROTOCOL_V5)) {
-            relatedConnection.setShardId(inBuffer.readInt());
-        }
+            // cache reusable
+            byte cache_reusable = inBuffer.readByte();
+            if (cacheData != null && cache_reusable == (byte) 1) {
+                /* get data from cache */
+                getCacheData(cacheData);
+                stmt_cache_data = cacheData;
+                tuples = cacheData.getTuples(0);
+                return;
+            }
+            // --
+
+            readResultInfo(inBuffer);
+            readResultMeta(inBuffer);
 
-        fetchResultData(inBuffer, cacheData);
+            if (relatedConnection.protoVersionIsAbove(UConnection.PROTOCOL_V5)) {
+                relatedConnection.setShardId(inBuffer.readInt());
+            }
+
+            fetchResultData(inBuffer, cacheData, resultCount, includesFetch);
+        } finally {
+            if (inBuffer != pendingBuffer) {
+                inBuffer.release();
+            }
+        }
 
         for (int i = 0; i < resultInfo.length; i++) {
             if (resultInfo[i].statementType != CUBRIDCommandType.CUBRID_STMT_SELECT) {
@@ -894,6 +1015,9 @@ public class UStatement {
                 break;
             }
         }
+        resultOpen =
+                resultInfo.length > 0
+                        && resultInfo[0].statementType == CUBRIDCommandType.CUBRID_STMT_SELECT;
     }
 
     public synchronized void execute(
@@ -915,6 +1039,10 @@ public class UStatement {
         flushLobStreams();
         errorHandler = new UError(relatedConnection);
 
+        if (parked && !unpark()) {
+            return;
+        }
+
         if (isClosed) {
             if (relatedConnection.brokerInfoStatementPooling()) {
                 try {
@@ -1011,9 +1139,69 @@ public class UStatement {
                 && errorHandler.getJdbcErrorCode() == UErrorCode.CAS_ER_STMT_POOLING);
     }
 
+    /*
+     * Called when the connection moves to another CAS. The statement stays
+     * prepared on its own CAS: execute() uses it again there, or prepares it
+     * on the current CAS and keeps the old handle for a move back.
+     */
+    synchronized void park() {
+        if (isClosed) {
+            return;
+        }
+        currentFirstCursor = cursorPosition = totalTupleNumber = fetchedTupleNumber = 0;
+        isClosed = true;
+        resultOpen = false;
+        parked = true;
+    }
+
+    /* a result set, e.g. a holdable one, still reads from the server handle */
+    boolean hasOpenResult() {
+        return resultOpen && !isClosed;
+    }
+
+    /* false with errorHandler set if the statement could not be prepared again */
+    private boolean unpark() {
+        UIntQueue current = relatedConnection.deferred_close_handle;
+        UIntQueue queue = closeQueue;
+        int handler = serverHandler;
+
+        parked = false;
+        isClosed = false;
+        if (queue != current && spareQueue == current) {
+            /* prepared on this CAS before the last move */
+            closeQueue = spareQueue;
+            serverHandler = spareHandler;
+            spareQueue = queue;
+            spareHandler = handler;
+        }
+        if (closeQueue == current) {
+            relatedConnection.pooled_ustmts.add(this);
+            return true;
+        }
+
+        try {
+            prepareAgain((byte) 0);
+        } catch (UJciException e) {
+            parked = true;
+            isClosed = true;
+            e.toUError(errorHandler);
+            return false;
+        }
+        /* the old handle is kept for a move back; one from a third CAS is closed */
+        if (spareQueue != null) {
+            spareQueue.add(spareHandler);
+        }
+        spareQueue = queue;
+        spareHandler = handler;
+        return true;
+    }
+
     private void reset(byte flag) throws UJciException {
         close();
+        prepareAgain(flag);
+    }
 
+    private void prepareAgain(byte flag) throws UJciException {
         UStatement tmp = relatedConnection.prepare(sql_stmt, (byte) (prepare_flag | flag), true);
         UError err = relatedConnection.getRecentError();
         if (err.getErrorCode() != UErrorCode.ER_NO_ERROR) {
@@ -1029,7 +1217,22 @@ public class UStatement {
         relatedConnection.pooled_ustmts.remove(tmp);
         relatedConnection.pooled_ustmts.add(this);
 
-        init(relatedConnection, tmp.tmp_inbuffer, sql_stmt, prepare_flag, false);
+        /* a statement that failed in PREPARE_AND_EXECUTE has no bind info yet */
+        boolean clear_bind_info = prepareOnExecute;
+        prepareOnExecute = false;
+        init(relatedConnection, tmp.tmp_inbuffer, sql_stmt, prepare_flag, clear_bind_info);
+        tmp.tmp_inbuffer.release();
+        tmp.tmp_inbuffer = null;
+    }
+
+    /* false until a statement from prepareOnExecute() is executed */
+    public boolean isPrepared() {
+        return !prepareOnExecute;
+    }
+
+    /* the statement type is not known before PREPARE_AND_EXECUTE returns */
+    private boolean isSelectText() {
+        return UJCIUtil.getLeadingKeyword(sql_stmt).equalsIgnoreCase("SELECT");
     }
 
     public synchronized CUBRIDOID executeInsert(boolean isAsync) {
@@ -1112,6 +1315,7 @@ public class UStatement {
         if (relatedConnection.protoVersionIsAbove(UConnection.PROTOCOL_V5)) {
             relatedConnection.setShardId(inBuffer.readInt());
         }
+        inBuffer.release();
 
         return batchResult;
     }
@@ -1122,6 +1326,10 @@ public class UStatement {
         byte additional_prepare_flag;
 
         errorHandler = new UError(relatedConnection);
+        if (parked && !unpark()) {
+            return null;
+        }
+
         if (isClosed) {
             if (relatedConnection.brokerInfoStatementPooling()) {
                 try {
@@ -1221,6 +1429,7 @@ public class UStatement {
         if (currentFirstCursor >= 0
                 && currentFirstCursor <= cursorPosition
                 && cursorPosition <= currentFirstCursor + fetchedTupleNumber - 1) {
+            decodeTuplesTo(cursorPosition - currentFirstCursor);
             return;
         }
 
@@ -1853,10 +2062,18 @@ public class UStatement {
                 outBuffer.addInt(0);
                 // outBuffer.addInt(resultset_index);
 
-                inBuffer = relatedConnection.send_recv_msg();
+                if (relatedConnection.useStreamingFetch()) {
+                    inBuffer = relatedConnection.send_recv_msg_streaming();
+                    readFetchResult(inBuffer);
+                    inBuffer = null;
+                } else {
+                    inBuffer = relatedConnection.send_recv_msg();
+                }
             }
 
-            read_fetch_data(inBuffer, UFunctionCode.FETCH);
+            if (inBuffer != null) {
+                readFetchResult(inBuffer);
+            }
             realFetched = true;
         } catch (UJciException e) {
             relatedConnection.logException(e);
@@ -1867,6 +2084,16 @@ public class UStatement {
         }
     }
 
+    private void readFetchResult(UInputBuffer inBuffer) throws UJciException {
+        try {
+            read_fetch_data(inBuffer, UFunctionCode.FETCH);
+        } finally {
+            if (inBuffer != pendingBuffer) {
+                inBuffer.release();
+            }
+        }
+    }
+
     public synchronized void setFetchDirection(int direction) {
         errorHandler = new UError(relatedConnection);
         if (isClosed == true) {
@@ -1915,7 +2142,7 @@ public class UStatement {
                 outBuffer.addInt(cursorPosition + 1);
                 updateParameter.writeParameter(outBuffer);
 
-                relatedConnection.send_recv_msg();
+                relatedConnection.send_recv_msg().release();
             }
         } catch (UJciException e) {
             relatedConnection.logException(e);
@@ -2007,6 +2234,7 @@ public class UStatement {
                 readColumnInfo(inBuffer);
                 executeResult = totalTupleNumber;
                 read_fetch_data(inBuffer, UFunctionCode.GET_GENERATED_KEYS);
+                inBuffer.release();
             }
         } catch (UJciException e) {
             relatedConnection.logException(e);
@@ -2068,15 +2296,39 @@ public class UStatement {
         Object obj;
         if ((tuples == null)
                 || (tuples[cursorPosition - currentFirstCursor] == null)
-                || ((obj = tuples[cursorPosition - currentFirstCursor].getAttribute(index))
+                || ((obj = getTupleAttribute(tuples[cursorPosition - currentFirstCursor], index))
                         == null)) {
-            errorHandler.setErrorCode(UErrorCode.ER_WAS_NULL);
+            if (errorHandler.getErrorCode() == UErrorCode.ER_NO_ERROR) {
+                errorHandler.setErrorCode(UErrorCode.ER_WAS_NULL);
+            }
             return null;
         }
 
         return obj;
     }
 
+    private Object getTupleAttribute(UResultTuple tuple, int index) {
+        UInputBuffer rawData = tuple.getRawData();
+        if (rawData == null) {
+            return tuple.getAttribute(index);
+        }
+
+        /* lazy tuple : decode the attribute on first access and keep the value */
+        try {
+            synchronized (rawData) {
+                if (!tuple.isDecoded(index)) {
+                    rawData.position(tuple.getRawOffset(index));
+                    tuple.setAttribute(index, readAAttribute(index, rawData, false));
+                }
+                return tuple.getAttribute(index);
+            }
+        } catch (UJciException e) {
+            relatedConnection.logException(e);
+            e.toUError(errorHandler);
+            return null;
+        }
+    }
+
     private boolean checkReFetch() {
         if ((currentFirstCursor < 0)
                 || (cursorPosition >= 0
@@ -2085,6 +2337,9 @@ public class UStatement {
                                         > currentFirstCursor + fetchedTupleNumber - 1)))) {
             fetch();
             if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR) return false;
+        } else {
+            decodeTuplesTo(cursorPosition - currentFirstCursor);
+            if (errorHandler.getErrorCode() != UErrorCode.ER_NO_ERROR) return false;
         }
         return true;
     }
@@ -2160,6 +2415,8 @@ public class UStatement {
     }
 
     public void closeResult() {
+        resultOpen = false;
+        discardPendingFetch();
         if (stmt_cache_data != null) {
             getResCache().setExpire();
             for (int n = stmt_cache_data.tuples.size(); n > 0; n--) {
@@ -2214,10 +2471,16 @@ public class UStatement {
     }
 
     private Object readAAttribute(int index, UInputBuffer inBuffer) throws UJciException {
+        return readAAttribute(index, inBuffer, true);
+    }
+
+    private Object readAAttribute(int index, UInputBuffer inBuffer, boolean countSize)
+            throws UJciException {
         int size;
         int localType;
         byte typeInfo[];
         String charsetName;
+        Charset charset;
 
         size = inBuffer.readInt();
         if (size < 0) return null;
@@ -2227,21 +2490,43 @@ public class UStatement {
         if (localType == UUType.U_TYPE_NULL) {
             localType = columnInfo[index].getColumnType();
             charsetName = columnInfo[index].getColumnCharset();
+            charset = columnInfo[index].getCharset();
         } else {
             if (typeInfo[3] == DEFAULT_CHARSET) {
                 charsetName = null;
+                charset = null;
             } else {
                 charsetName = UJCIUtil.getJavaCharsetName((byte) typeInfo[3]);
+                charset = UJCIUtil.getJavaCharset(typeInfo[3]);
             }
         }
 
+        size = size - typeInfo[2];
+        if (countSize) {
+            fetchedSize += size;
+        }
+
+        return (readData(inBuffer, localType, size, charsetName, charset));
+    }
+
+    /* returns false if the attribute is null */
+    private boolean skipAAttribute(int index, UInputBuffer inBuffer) throws UJciException {
+        int size;
+        byte typeInfo[];
+
+        size = inBuffer.readInt();
+        if (size < 0) return false;
+
+        typeInfo = readTypeFromData(index, inBuffer);
         size = size - typeInfo[2];
         fetchedSize += size;
 
-        return (readData(inBuffer, localType, size, charsetName));
+        inBuffer.skipBytes(size);
+        return true;
     }
 
-    private Object readData(UInputBuffer inBuffer, int dataType, int dataSize, String charsetName)
+    private Object readData(
+            UInputBuffer inBuffer, int dataType, int dataSize, String charsetName, Charset charset)
             throws UJciException {
         switch (dataType) {
             case UUType.U_TYPE_CHAR:
@@ -2253,7 +2538,7 @@ public class UStatement {
                 if (charsetName != null && charsetName.equals("BINARY")) {
                     return inBuffer.readBinaryString(dataSize);
                 } else {
-                    return inBuffer.readString(dataSize, charsetName);
+                    return inBuffer.readString(dataSize, charset);
                 }
             case UUType.U_TYPE_NUMERIC:
                 return new BigDecimal(inBuffer.readString(dataSize, UJCIManager.sysCharsetName));
@@ -2294,7 +2579,9 @@ public class UStatement {
                         if (eleSize <= 0) aArray.setElement(i, null);
                         else
                             aArray.setElement(
-                                    i, readData(inBuffer, baseType, eleSize, charsetName));
+                                    i,
+                                    readData(
+                                            inBuffer, baseType, eleSize, charsetName, charset));
                     }
                     return aArray;
                 }
@@ -2331,9 +2618,33 @@ public class UStatement {
         }
 
         tuples = new UResultTuple[fetchedTupleNumber];
+        pendingError = null;
+
+        boolean lazy =
+                functionCode == UFunctionCode.FETCH
+                        && statementType == NORMAL
+                        && fetchedTupleNumber > 0
+                        && relatedConnection.useLazyDecoding();
+        if (lazy) {
+            /* the tuples refer to the received bytes until they are decoded */
+            inBuffer.retain();
+        }
+
+        if (functionCode == UFunctionCode.FETCH
+                && statementType == NORMAL
+                && stmt_cache_data == null
+                && fetchedTupleNumber > 1
+                && inBuffer.isStreaming()) {
+            /* the first row is ready now, the others when the cursor reaches them */
+            readATuple(0, inBuffer, false);
+            pendingTuple = 1;
+            pendingBuffer = inBuffer;
+            relatedConnection.pendingFetch = this;
+            return;
+        }
 
         for (int i = 0; i < fetchedTupleNumber; i++) {
-            readATuple(i, inBuffer);
+            readATuple(i, inBuffer, lazy);
         }
 
         if (functionCode == UFunctionCode.GET_GENERATED_KEYS) {
@@ -2346,6 +2657,100 @@ public class UStatement {
         }
     }
 
+    /* false with the error set if the rows up to index cannot be decoded */
+    private boolean decodeTuplesTo(int index) {
+        if (pendingBuffer == null && pendingError == null) {
+            return true;
+        }
+        synchronized (relatedConnection) {
+            if (pendingError != null && index >= pendingTuple) {
+                pendingError.toUError(errorHandler);
+                return false;
+            }
+            try {
+                decodePendingTuples(index);
+            } catch (UJciException e) {
+                relatedConnection.logException(e);
+                e.toUError(errorHandler);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* the caller holds the connection lock */
+    private void decodePendingTuples(int index) throws UJciException {
+        UInputBuffer inBuffer = pendingBuffer;
+        if (inBuffer == null) {
+            return;
+        }
+
+        try {
+            int last = Math.min(index, fetchedTupleNumber - 1);
+            while (pendingTuple <= last) {
+                readATuple(pendingTuple, inBuffer, false);
+                pendingTuple++;
+            }
+            if (pendingTuple < fetchedTupleNumber) {
+                return;
+            }
+            if (relatedConnection.protoVersionIsAbove(UConnection.PROTOCOL_V5)) {
+                isFetchCompleted = inBuffer.readByte() == 1 ? true : false;
+            }
+        } catch (UJciException e) {
+            pendingError = e;
+            endPendingFetch().release();
+            throw e;
+        }
+        endPendingFetch().release();
+    }
+
+    private UInputBuffer endPendingFetch() {
+        UInputBuffer inBuffer = pendingBuffer;
+        pendingBuffer = null;
+        if (relatedConnection.pendingFetch == this) {
+            relatedConnection.pendingFetch = null;
+        }
+        return inBuffer;
+    }
+
+    /*
+     * Reads the rest of a streamed fetch before the connection sends a
+     * request. The tuples are still decoded when the cursor reaches them.
+     */
+    void completePendingFetch() throws UJciException {
+        try {
+            pendingBuffer.readRemainder();
+        } catch (UJciException e) {
+            pendingError = e;
+            endPendingFetch().discard();
+            throw e;
+        }
+        relatedConnection.pendingFetch = null;
+    }
+
+    /* drops the rest of a streamed fetch; the socket is being closed */
+    void abandonPendingFetch() {
+        if (pendingBuffer != null) {
+            pendingError = new UJciException(UErrorCode.ER_COMMUNICATION);
+            endPendingFetch().discard();
+        }
+    }
+
+    /* skips the rest of a streamed fetch whose result is no longer needed */
+    private void discardPendingFetch() {
+        if (pendingBuffer == null) {
+            return;
+        }
+        synchronized (relatedConnection) {
+            if (pendingBuffer != null) {
+                fetchedTupleNumber = pendingTuple;
+                endPendingFetch().release();
+            }
+            pendingError = null;
+        }
+    }
+
     private void readATupleByOid(CUBRIDOID oid, UInputBuffer inBuffer) throws UJciException {
         tuples[0] = new UResultTuple(1, columnNumber);
         tuples[0].setOid(oid);
@@ -2355,13 +2760,21 @@ public class UStatement {
         currentFirstCursor = 0;
     }
 
-    private void readATuple(int index, UInputBuffer inBuffer) throws UJciException {
+    private void readATuple(int index, UInputBuffer inBuffer, boolean lazy)
+            throws UJciException {
 
         UResultTuple tuple = new UResultTuple(inBuffer.readInt(), columnNumber);
         tuples[index] = tuple;
         tuples[index].setOid(inBuffer.readOID(relatedConnection.getCUBRIDConnection()));
         for (int i = fetchedSize = 0; i < columnNumber; i++) {
-            tuples[index].setAttribute(i, readAAttribute(i, inBuffer));
+            if (lazy) {
+                int offset = inBuffer.position();
+                if (skipAAttribute(i, inBuffer)) {
+                    tuples[index].setRawAttribute(i, inBuffer, offset);
+                }
+            } else {
+                tuples[index].setAttribute(i, readAAttribute(i, inBuffer));
+            }
         }
 
         confirmSchemaTypeInfo(index);
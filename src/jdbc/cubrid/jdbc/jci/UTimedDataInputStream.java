@@ -40,40 +40,66 @@
  */
 package cubrid.jdbc.jci;
 
-import cubrid.jdbc.net.BrokerHandler;
-import java.io.DataInputStream;
+import cubrid.jdbc.net.BrokerProber;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
 
 public class UTimedDataInputStream {
     public static final int PING_TIMEOUT = 5000;
-    private DataInputStream stream = null;
+    private static final int READ_AHEAD_SIZE = 16 * 1024;
+    /* enough to assemble an int from a stream that buffers by itself */
+    private static final int INT_BUFFER_SIZE = 8;
+    private InputStream stream = null;
     private String ip = null;
     private int port = 0;
     private int timeout = 0;
     private int pid = 0;
     private byte session[] = {0, 0, 0, 0};
 
+    /* read-ahead buffer; buf[pos..count) is not consumed yet */
+    private byte buf[];
+    private int pos = 0;
+    private int count = 0;
+    private boolean readAhead = true;
+
     public UTimedDataInputStream(InputStream stream, String ip, int port) {
         this(stream, ip, port, 0);
     }
 
     public UTimedDataInputStream(
             InputStream stream, String ip, int port, int pid, byte session[], int timeout) {
-        this.stream = new DataInputStream(stream);
+        this.stream = stream;
         this.ip = ip;
         this.port = port;
-        this.pid = pid;
-        for (int i = 0; i < 4; i++) this.session[i] = session[i + 8];
         this.timeout = timeout;
+        this.buf = new byte[READ_AHEAD_SIZE];
+        setCASProcess(pid, session);
     }
 
     public UTimedDataInputStream(InputStream stream, String ip, int port, int timeout) {
-        this.stream = new DataInputStream(stream);
+        this(stream, ip, port, timeout, true);
+    }
+
+    /*
+     * readAhead is false for a stream that already buffers what it received,
+     * such as the SocketChannel transport; data is then copied straight into
+     * the caller's array.
+     */
+    public UTimedDataInputStream(
+            InputStream stream, String ip, int port, int timeout, boolean readAhead) {
+        this.stream = stream;
         this.ip = ip;
         this.port = port;
         this.timeout = timeout;
+        this.readAhead = readAhead;
+        this.buf = new byte[readAhead ? READ_AHEAD_SIZE : INT_BUFFER_SIZE];
+    }
+
+    public void setCASProcess(int pid, byte session[]) {
+        this.pid = pid;
+        for (int i = 0; i < 4; i++) this.session[i] = session[i + 8];
     }
 
     public int readInt(int timeout) throws IOException, UJciException {
@@ -81,13 +107,16 @@ public class UTimedDataInputStream {
 
         while (true) {
             try {
-                return stream.readInt();
+                ensure(4);
+                int data = UJCIUtil.bytes2int(buf, pos);
+                pos += 4;
+                return data;
             } catch (SocketTimeoutException e) {
                 if (timeout > 0 && timeout - (System.currentTimeMillis() - begin) <= 0) {
                     String msg = UErrorCode.codeToMessage(UErrorCode.ER_TIMEOUT);
                     throw new SocketTimeoutException(msg);
                 }
-                BrokerHandler.pingBroker(ip, port, PING_TIMEOUT);
+                BrokerProber.pingBroker(ip, port, PING_TIMEOUT);
             }
         }
     }
@@ -102,17 +131,24 @@ public class UTimedDataInputStream {
 
     public void readFully(byte[] b, int timeout) throws IOException, UJciException {
         long begin = System.currentTimeMillis();
+        int done = 0;
 
         while (true) {
             try {
-                stream.readFully(b);
+                while (done < b.length) {
+                    int n = readBuffered(b, done, b.length - done);
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    done += n;
+                }
                 return;
             } catch (SocketTimeoutException e) {
                 if (timeout > 0 && timeout - (System.currentTimeMillis() - begin) <= 0) {
                     String msg = UErrorCode.codeToMessage(UErrorCode.ER_TIMEOUT);
                     throw new SocketTimeoutException(msg);
                 }
-                BrokerHandler.pingBroker(ip, port, PING_TIMEOUT);
+                BrokerProber.pingBroker(ip, port, PING_TIMEOUT);
             }
         }
     }
@@ -122,13 +158,13 @@ public class UTimedDataInputStream {
 
         while (true) {
             try {
-                return stream.read(b);
+                return readBuffered(b, 0, b.length);
             } catch (SocketTimeoutException e) {
                 if (timeout > 0 && timeout - (System.currentTimeMillis() - begin) <= 0) {
                     String msg = UErrorCode.codeToMessage(UErrorCode.ER_TIMEOUT);
                     throw new SocketTimeoutException(msg);
                 }
-                BrokerHandler.pingBroker(ip, port, PING_TIMEOUT);
+                BrokerProber.pingBroker(ip, port, PING_TIMEOUT);
             }
         }
     }
@@ -143,17 +179,17 @@ public class UTimedDataInputStream {
 
         while (true) {
             try {
-                return stream.read(b, off, len);
+                return readBuffered(b, off, len);
             } catch (SocketTimeoutException e) {
                 if (timeout > 0 && timeout - (System.currentTimeMillis() - begin) <= 0) {
                     String msg = UErrorCode.codeToMessage(UErrorCode.ER_TIMEOUT);
                     throw new SocketTimeoutException(msg);
                 }
                 if (UConnection.protoVersionIsLower(UConnection.PROTOCOL_V9)) {
-                    BrokerHandler.pingBroker(ip, port, PING_TIMEOUT);
+                    BrokerProber.pingBroker(ip, port, PING_TIMEOUT);
                     continue;
                 }
-                if (BrokerHandler.statusBroker(ip, port, pid, session, PING_TIMEOUT) != 1) {
+                if (BrokerProber.statusBroker(ip, port, pid, session, PING_TIMEOUT) != 1) {
                     if (retry) {
                         throw new UJciException(UErrorCode.ER_COMMUNICATION);
                     }
@@ -170,4 +206,54 @@ public class UTimedDataInputStream {
     public void close() throws IOException {
         stream.close();
     }
+
+    /*
+     * Copies buffered bytes, refilling the buffer with a single read when it
+     * is empty. Large reads, and all reads without read-ahead, bypass the
+     * buffer. A SocketTimeoutException leaves the buffer consistent, so
+     * callers may simply retry.
+     */
+    private int readBuffered(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (pos == count) {
+            if (len >= buf.length || !readAhead) {
+                return stream.read(b, off, len);
+            }
+            pos = count = 0;
+            int n = stream.read(buf, 0, buf.length);
+            if (n <= 0) {
+                return n;
+            }
+            count = n;
+        }
+
+        int n = Math.min(len, count - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    /* makes at least size bytes available in buf[pos..count) */
+    private void ensure(int size) throws IOException {
+        if (count - pos >= size) {
+            return;
+        }
+
+        if (buf.length - pos < size) {
+            System.arraycopy(buf, pos, buf, 0, count - pos);
+            count -= pos;
+            pos = 0;
+        }
+
+        while (count - pos < size) {
+            int n = stream.read(buf, count, buf.length - count);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            count += n;
+        }
+    }
 }
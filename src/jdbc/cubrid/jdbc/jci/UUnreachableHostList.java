@@ -35,19 +35,164 @@ import cubrid.jdbc.net.BrokerHandler;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+/*
+ * Per-host circuit breaker.
+ *
+ * CLOSED    : connections are allowed. Outcomes are kept in a short window and
+ *             the breaker opens when the window holds at least MIN_CALLS
+ *             outcomes and the failure rate reaches FAILURE_RATE. A host
+ *             that refuses the connection or does not answer within the
+ *             connect timeout opens the breaker at once.
+ * OPEN      : connections are refused until the re-check time, which backs off
+ *             exponentially while the host stays down.
+ * HALF_OPEN : up to MAX_TRIALS connections at a time are let through. The
+ *             breaker closes after TRIAL_SUCCESSES successes and opens again
+ *             on any failure.
+ */
 public class UUnreachableHostList {
     private static final String HEALTH_CHECK_DUMMY_DB = "___health_check_dummy_db___";
     private static final int CAS_INFO_SIZE = 4;
+    private static final int MAX_PARALLEL_CHECKS = 8;
+    /* re-check interval: doubled per failed check, from 1 sec up to MONITORING_INTERVAL */
+    private static final long MIN_CHECK_INTERVAL = 1000;
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private static final int WINDOW_SIZE = 10;
+    private static final long WINDOW_TIME = 60 * 1000;
+    private static final double FAILURE_RATE = 0.5;
+    /* a few failures after a quiet period are not a failure rate yet */
+    private static final int MIN_CALLS = 5;
+    private static final int MAX_TRIALS = 2;
+    private static final int TRIAL_SUCCESSES = 3;
+    /* trials not reported for this long are given up */
+    private static final long TRIAL_TIMEOUT = 60 * 1000;
 
     private static UUnreachableHostList instance = null;
-    private List<String> unreachableHosts;
+    private ConcurrentHashMap<String, HostState> hosts;
     private boolean useSSL = false;
+    private ExecutorService checkExecutor = null;
+    private Random random = new Random();
+
+    private class HostState {
+        volatile int state = CLOSED;
+        int failedChecks = 0;
+        volatile long nextCheckTime;
+        int trials = 0;
+        int trialSuccesses = 0;
+        long lastTrialTime = 0;
+
+        /* recent outcomes, WINDOW_SIZE at most */
+        long outcomeTime[] = new long[WINDOW_SIZE];
+        boolean outcomeFailed[] = new boolean[WINDOW_SIZE];
+        int outcomeNext = 0;
+        int outcomeCount = 0;
+
+        synchronized boolean tryAcquire(long now) {
+            if (state == OPEN) {
+                if (now < nextCheckTime) {
+                    return false;
+                }
+                toHalfOpen();
+            }
+            if (state == HALF_OPEN) {
+                if (trials >= MAX_TRIALS && now - lastTrialTime < TRIAL_TIMEOUT) {
+                    return false;
+                }
+                if (trials >= MAX_TRIALS) {
+                    trials = 0;
+                }
+                trials++;
+                lastTrialTime = now;
+            }
+            return true;
+        }
+
+        synchronized void onSuccess(long now) {
+            if (state == CLOSED) {
+                addOutcome(now, false);
+                return;
+            }
+            if (state == OPEN) {
+                toHalfOpen();
+            } else if (trials > 0) {
+                trials--;
+            }
+            if (++trialSuccesses >= TRIAL_SUCCESSES) {
+                state = CLOSED;
+                failedChecks = 0;
+                outcomeCount = 0;
+            }
+        }
+
+        synchronized void onFailure(long now, boolean unreachable) {
+            if (state == CLOSED) {
+                addOutcome(now, true);
+                if (unreachable || isFailing(now)) {
+                    toOpen(now);
+                }
+            } else if (state == HALF_OPEN) {
+                if (trials > 0) trials--;
+                failedChecks++;
+                toOpen(now);
+            }
+        }
+
+        synchronized void release() {
+            if (state == HALF_OPEN && trials > 0) {
+                trials--;
+            }
+        }
+
+        synchronized void onCheckFailure(long now) {
+            failedChecks++;
+            nextCheckTime = now + nextInterval(failedChecks);
+        }
+
+        void toHalfOpen() {
+            state = HALF_OPEN;
+            trials = 0;
+            trialSuccesses = 0;
+        }
+
+        private void toOpen(long now) {
+            state = OPEN;
+            nextCheckTime = now + nextInterval(failedChecks);
+            wakeUpChecker();
+        }
+
+        private void addOutcome(long now, boolean failed) {
+            outcomeTime[outcomeNext] = now;
+            outcomeFailed[outcomeNext] = failed;
+            outcomeNext = (outcomeNext + 1) % WINDOW_SIZE;
+            if (outcomeCount < WINDOW_SIZE) outcomeCount++;
+        }
+
+        private boolean isFailing(long now) {
+            int total = 0, failed = 0;
+            for (int i = 0; i < outcomeCount; i++) {
+                if (now - outcomeTime[i] > WINDOW_TIME) continue;
+                total++;
+                if (outcomeFailed[i]) failed++;
+            }
+            return total >= MIN_CALLS && failed >= FAILURE_RATE * total;
+        }
+    }
 
     private UUnreachableHostList() {
-        unreachableHosts = new CopyOnWriteArrayList<String>();
+        hosts = new ConcurrentHashMap<String, HostState>();
     }
 
     public static synchronized UUnreachableHostList getInstance() {
@@ -58,41 +203,151 @@ public class UUnreachableHostList {
         return instance;
     }
 
+    private HostState getState(String host) {
+        HostState state = hosts.get(host);
+        if (state == null) {
+            HostState newState = new HostState();
+            state = hosts.putIfAbsent(host, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    /* true if the breaker of the host is not closed; does not change the state */
     public boolean contains(String host) {
-        return unreachableHosts.contains(host);
+        HostState state = hosts.get(host);
+        return state != null && state.state != CLOSED;
+    }
+
+    /*
+     * Asks the breaker whether a connection to the host may be tried. Each
+     * admitted attempt must be reported by recordSuccess, recordFailure or
+     * release.
+     */
+    public boolean tryAcquire(String host) {
+        HostState state = hosts.get(host);
+        if (state == null) {
+            return true;
+        }
+        return state.tryAcquire(System.currentTimeMillis());
     }
 
-    public synchronized void add(String host) {
-        if (!unreachableHosts.contains(host)) {
-            unreachableHosts.add(host);
+    public void recordSuccess(String host) {
+        getState(host).onSuccess(System.currentTimeMillis());
+    }
+
+    public void recordFailure(String host) {
+        getState(host).onFailure(System.currentTimeMillis(), false);
+    }
+
+    /* the connection was refused or timed out; every further try would wait as long */
+    public void recordUnreachable(String host) {
+        getState(host).onFailure(System.currentTimeMillis(), true);
+    }
+
+    /* the attempt ended without telling whether the host is healthy */
+    public void release(String host) {
+        HostState state = hosts.get(host);
+        if (state != null) {
+            state.release();
         }
     }
 
-    public void remove(String host) {
-        unreachableHosts.remove(host);
+    private synchronized void wakeUpChecker() {
+        /* wake up the health check thread for the newly opened host */
+        notifyAll();
     }
 
-    public void checkReachability(int timeout) {
-        String ip;
-        int port;
+    /*
+     * Checks the open hosts whose re-check time has come, up to
+     * MAX_PARALLEL_CHECKS at a time. A host that answers goes half-open.
+     */
+    public void checkReachability(final int timeout) {
+        long now = System.currentTimeMillis();
+        List<Callable<Object>> checks = new ArrayList<Callable<Object>>();
+
+        for (Map.Entry<String, HostState> entry : hosts.entrySet()) {
+            final String host = entry.getKey();
+            final HostState state = entry.getValue();
+            if (state.state != OPEN || state.nextCheckTime > now) {
+                continue;
+            }
 
-        if (unreachableHosts == null) {
+            checks.add(
+                    new Callable<Object>() {
+                        public Object call() {
+                            checkHost(host, state, timeout);
+                            return null;
+                        }
+                    });
+        }
+
+        if (checks.isEmpty()) {
             return;
         }
 
-        for (String host : unreachableHosts) {
-            ip = host.split(":")[0];
-            port = Integer.parseInt(host.split(":")[1]);
+        try {
+            getCheckExecutor().invokeAll(checks);
+        } catch (InterruptedException e) {
+            // do nothing
+        }
+    }
+
+    private void checkHost(String host, HostState state, int timeout) {
+        String ip = host.split(":")[0];
+        int port = Integer.parseInt(host.split(":")[1]);
 
-            try {
-                checkHostAlive(ip, port, timeout);
-                remove(host);
-            } catch (UJciException e) {
-                // do nothing
-            } catch (IOException e) {
-                // do nothing
+        try {
+            checkHostAlive(ip, port, timeout);
+            synchronized (state) {
+                if (state.state == OPEN) {
+                    state.toHalfOpen();
+                }
             }
+        } catch (UJciException e) {
+            state.onCheckFailure(System.currentTimeMillis());
+        } catch (IOException e) {
+            state.onCheckFailure(System.currentTimeMillis());
+        }
+    }
+
+    /* exponential backoff with +-50% jitter, so that hosts are not checked in lockstep */
+    private long nextInterval(int failedChecks) {
+        long interval = MIN_CHECK_INTERVAL << Math.min(failedChecks, 16);
+        interval = Math.min(interval, BrokerHealthCheck.MONITORING_INTERVAL);
+        return interval / 2 + (long) (random.nextDouble() * interval);
+    }
+
+    /* waits until the next open host is due, a host opens, or maxWait passes */
+    synchronized void awaitNextCheck(long maxWait) throws InterruptedException {
+        long wait = maxWait;
+        long now = System.currentTimeMillis();
+        for (HostState state : hosts.values()) {
+            if (state.state == OPEN) {
+                wait = Math.min(wait, state.nextCheckTime - now);
+            }
+        }
+        if (wait > 0) {
+            wait(wait);
+        }
+    }
+
+    private synchronized ExecutorService getCheckExecutor() {
+        if (checkExecutor == null) {
+            checkExecutor =
+                    Executors.newFixedThreadPool(
+                            MAX_PARALLEL_CHECKS,
+                            new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "CUBRID-HealthCheck");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
         }
+        return checkExecutor;
     }
 
     private void checkHostAlive(String ip, int port, int timeout)
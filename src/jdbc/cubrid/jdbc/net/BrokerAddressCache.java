@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.net;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Driver-wide cache of resolved broker addresses shared by all BrokerHandler
+ * requests. An expired address is still used while it is resolved again in
+ * the background, so name resolution stays out of the request path. A name
+ * that did not resolve is remembered for a shorter time.
+ *
+ * The lifetimes are set in seconds with the AddressCacheTTL and
+ * AddressCacheNegativeTTL system properties. AddressCacheTTL=0 disables
+ * the cache.
+ */
+class BrokerAddressCache {
+    private static final long TTL = getMillis("AddressCacheTTL", 30);
+    private static final long NEGATIVE_TTL = getMillis("AddressCacheNegativeTTL", 5);
+
+    private static final ConcurrentHashMap<String, Entry> entries =
+            new ConcurrentHashMap<String, Entry>();
+    private static ExecutorService resolver = null;
+
+    private static class Entry {
+        final InetAddress address; /* null if the name did not resolve */
+        final long expiresAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(InetAddress address, long expiresAt) {
+            this.address = address;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    static InetSocketAddress getAddress(String host, int port) {
+        if (TTL <= 0) {
+            return new InetSocketAddress(host, port);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(host);
+        if (entry == null || (entry.address == null && now >= entry.expiresAt)) {
+            entry = resolve(host);
+            entries.put(host, entry);
+        } else if (now >= entry.expiresAt) {
+            refreshLater(host, entry);
+        }
+
+        if (entry.address == null) {
+            /* connect() fails with UnknownHostException as before */
+            return InetSocketAddress.createUnresolved(host, port);
+        }
+        return new InetSocketAddress(entry.address, port);
+    }
+
+    /*
+     * Resolves the name again in the background after a failed connect, in
+     * case the host has moved. The address is kept meanwhile: a refused or
+     * timed out connect usually means the broker is down, not renamed.
+     */
+    static void refresh(String host) {
+        Entry entry = entries.get(host);
+        if (entry != null && entry.address != null) {
+            refreshLater(host, entry);
+        }
+    }
+
+    private static Entry resolve(String host) {
+        Entry entry;
+        try {
+            InetAddress address = InetAddress.getByName(host);
+            entry = new Entry(address, System.currentTimeMillis() + TTL);
+        } catch (UnknownHostException e) {
+            entry = new Entry(null, System.currentTimeMillis() + NEGATIVE_TTL);
+        }
+        return entry;
+    }
+
+    private static void refreshLater(final String host, final Entry old) {
+        if (!old.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        getResolver()
+                .execute(
+                        new Runnable() {
+                            public void run() {
+                                Entry entry = resolve(host);
+                                if (entry.address == null) {
+                                    /* keep the last good address during a resolver outage */
+                                    entry =
+                                            new Entry(
+                                                    old.address,
+                                                    System.currentTimeMillis() + NEGATIVE_TTL);
+                                }
+                                entries.put(host, entry);
+                            }
+                        });
+    }
+
+    private static synchronized ExecutorService getResolver() {
+        if (resolver == null) {
+            resolver =
+                    Executors.newSingleThreadExecutor(
+                            new ThreadFactory() {
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "CUBRID-Resolver");
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+        }
+        return resolver;
+    }
+
+    private static long getMillis(String name, long defaultSeconds) {
+        String value = System.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // use the default
+            }
+        }
+        return defaultSeconds * 1000;
+    }
+}
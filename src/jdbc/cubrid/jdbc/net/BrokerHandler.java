@@ -42,11 +42,13 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -58,15 +60,29 @@ public class BrokerHandler {
 
     public static Socket connectBroker(String ip, int port, boolean useSSL, int timeout)
             throws IOException, UJciException {
+        return connectBroker(ip, port, useSSL, false, timeout);
+    }
+
+    /*
+     * If useChannel is set, the returned socket is bound to a SocketChannel.
+     * SSL connections always use a classic socket.
+     */
+    public static Socket connectBroker(
+            String ip, int port, boolean useSSL, boolean useChannel, int timeout)
+            throws IOException, UJciException {
         Socket toBroker = null;
         Socket toSSLBroker = null;
         UTimedDataInputStream in = null;
         DataOutputStream out = null;
         long begin = System.currentTimeMillis();
 
+        if (useSSL) {
+            useChannel = false;
+        }
+
         try {
-            toBroker = new Socket();
-            InetSocketAddress brokerAddress = new InetSocketAddress(ip, port);
+            toBroker = createSocket(useChannel);
+            InetSocketAddress brokerAddress = BrokerAddressCache.getAddress(ip, port);
             if (timeout <= 0) {
                 toBroker.connect(brokerAddress);
             } else {
@@ -119,8 +135,8 @@ public class BrokerHandler {
             toBroker.setSoLinger(true, 0);
             toBroker.close();
 
-            toBroker = new Socket(); // need instantiation
-            brokerAddress = new InetSocketAddress(ip, code);
+            toBroker = createSocket(useChannel); // need instantiation
+            brokerAddress = BrokerAddressCache.getAddress(ip, code);
             if (timeout <= 0) {
                 toBroker.connect(brokerAddress);
             } else {
@@ -142,16 +158,25 @@ public class BrokerHandler {
             if (toBroker != null) {
                 toBroker.close();
             }
+            BrokerAddressCache.refresh(ip);
             throw new UJciException(UErrorCode.ER_TIMEOUT, e);
         } catch (IOException e) {
             if (toBroker != null) {
                 toBroker.close();
             }
+            BrokerAddressCache.refresh(ip);
             throw new UJciException(UErrorCode.ER_CONNECTION, e);
         } finally {
         }
     }
 
+    private static Socket createSocket(boolean useChannel) throws IOException {
+        if (useChannel) {
+            return SocketChannel.open().socket();
+        }
+        return new Socket();
+    }
+
     private static byte[] PING_INFO = {'P', 'I', 'N', 'G', 0, 0, 0, 0, 0, 0};
 
     public static void pingBroker(String ip, int port, int timeout) throws IOException {
@@ -162,7 +187,9 @@ public class BrokerHandler {
 
         try {
             toBroker = new Socket();
-            InetSocketAddress brokerAddress = new InetSocketAddress(ip, port);
+            /* reset on close, so that frequent probes leave no TIME_WAIT sockets */
+            toBroker.setSoLinger(true, 0);
+            InetSocketAddress brokerAddress = BrokerAddressCache.getAddress(ip, port);
             if (timeout <= 0) {
                 toBroker.connect(brokerAddress);
             } else {
@@ -197,7 +224,9 @@ public class BrokerHandler {
 
         try {
             toBroker = new Socket();
-            InetSocketAddress brokerAddress = new InetSocketAddress(ip, port);
+            /* reset on close, so that frequent probes leave no TIME_WAIT sockets */
+            toBroker.setSoLinger(true, 0);
+            InetSocketAddress brokerAddress = BrokerAddressCache.getAddress(ip, port);
             if (timeout <= 0) {
                 toBroker.connect(brokerAddress);
             } else {
@@ -235,7 +264,7 @@ public class BrokerHandler {
 
         try {
             toBroker = new Socket();
-            InetSocketAddress brokerAddress = new InetSocketAddress(ip, port);
+            InetSocketAddress brokerAddress = BrokerAddressCache.getAddress(ip, port);
             if (timeout <= 0) {
                 toBroker.connect(brokerAddress);
             } else {
@@ -311,11 +340,19 @@ public class BrokerHandler {
         cancelRequest(ip, port, bao.toByteArray(), timeout);
     }
 
-    private static SSLSocket createSSLSocket(Socket plainSocket, String ip, int port)
-            throws UJciException {
-        SSLSocket sslSocket = null;
+    /* SSL protocol -> factory; a shared context lets JSSE resume sessions per broker */
+    private static final ConcurrentHashMap<String, SSLSocketFactory> sslFactories =
+            new ConcurrentHashMap<String, SSLSocketFactory>();
+
+    private static final String SSL_PROTOCOL = "TLS";
+
+    private static SSLSocketFactory getSSLSocketFactory(String protocol) throws UJciException {
+        SSLSocketFactory factory = sslFactories.get(protocol);
+        if (factory != null) {
+            return factory;
+        }
+
         SSLContext ctx = null;
-        SSLSocketFactory sslsocketfactory = null;
 
         X509TrustManager tm =
                 new X509TrustManager() {
@@ -331,7 +368,7 @@ public class BrokerHandler {
                 };
 
         try {
-            ctx = SSLContext.getInstance("TLS");
+            ctx = SSLContext.getInstance(protocol);
         } catch (NoSuchAlgorithmException e) {
             throw new UJciException(UErrorCode.ER_CONNECTION, e);
         }
@@ -342,7 +379,16 @@ public class BrokerHandler {
             throw new UJciException(UErrorCode.ER_CONNECTION, e);
         }
 
-        sslsocketfactory = ctx.getSocketFactory();
+        factory = ctx.getSocketFactory();
+        SSLSocketFactory prev = sslFactories.putIfAbsent(protocol, factory);
+        return prev != null ? prev : factory;
+    }
+
+    private static SSLSocket createSSLSocket(Socket plainSocket, String ip, int port)
+            throws UJciException {
+        SSLSocket sslSocket = null;
+        SSLSocketFactory sslsocketfactory = getSSLSocketFactory(SSL_PROTOCOL);
+
         try {
             sslSocket = (SSLSocket) sslsocketfactory.createSocket(plainSocket, ip, port, true);
         } catch (IOException e) {
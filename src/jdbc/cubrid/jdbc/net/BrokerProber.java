@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.net;
+
+import cubrid.jdbc.jci.UErrorCode;
+import cubrid.jdbc.jci.UJciException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/*
+ * Driver-wide liveness prober used while a reader waits for a long query.
+ * Concurrent pings of the same broker share one request. STATUS checks of
+ * all CAS processes waited on at one broker are run together in rounds by
+ * a single thread; a broker that can not be reached fails the whole round
+ * after one connection attempt. A good result is reused for
+ * PROBE_INTERVAL, which is longer than the 5 second read timeout of CAS
+ * sockets, so a reader that times out again gets the cached result. A
+ * failure is kept only for FAILURE_INTERVAL, shorter than the read
+ * timeout, so that a reader retrying after its next timeout asks again.
+ */
+public class BrokerProber {
+    private static final long PROBE_INTERVAL = 10 * 1000;
+    private static final long FAILURE_INTERVAL = 1000;
+    private static final long SWEEP_INTERVAL = 60 * 1000;
+
+    private static final ConcurrentHashMap<String, Probe> probes =
+            new ConcurrentHashMap<String, Probe>();
+    private static final ConcurrentHashMap<String, StatusRounds> statusRounds =
+            new ConcurrentHashMap<String, StatusRounds>();
+    private static volatile long lastSweep = System.currentTimeMillis();
+
+    private static class Probe extends FutureTask<Integer> {
+        private volatile long doneAt = 0;
+        private volatile boolean failed = false;
+
+        Probe(Callable<Integer> task) {
+            super(task);
+        }
+
+        protected void setException(Throwable t) {
+            failed = true;
+            super.setException(t);
+        }
+
+        protected void done() {
+            doneAt = System.currentTimeMillis();
+        }
+
+        boolean isFresh(long now) {
+            return !isDone() || now - doneAt < (failed ? FAILURE_INTERVAL : PROBE_INTERVAL);
+        }
+    }
+
+    public static void pingBroker(final String ip, final int port, final int timeout)
+            throws IOException, UJciException {
+        probe(
+                ip + ":" + port,
+                new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        BrokerHandler.pingBroker(ip, port, timeout);
+                        return 1;
+                    }
+                });
+    }
+
+    public static int statusBroker(
+            final String ip,
+            final int port,
+            final int process,
+            final byte[] session,
+            final int timeout)
+            throws IOException, UJciException {
+        String broker = ip + ":" + port;
+        StatusRounds rounds = statusRounds.get(broker);
+        if (rounds == null) {
+            StatusRounds newRounds = new StatusRounds(ip, port);
+            rounds = statusRounds.putIfAbsent(broker, newRounds);
+            if (rounds == null) {
+                rounds = newRounds;
+            }
+        }
+        return rounds.status(new Cas(process, session, timeout));
+    }
+
+    private static class Cas {
+        final int process;
+        final byte[] session;
+        final int timeout;
+        final String key;
+
+        Cas(int process, byte[] session, int timeout) {
+            this.process = process;
+            this.session = session.clone();
+            this.timeout = timeout;
+            StringBuilder b = new StringBuilder();
+            b.append(process);
+            for (int i = 0; i < 4; i++) b.append(':').append(this.session[i]);
+            key = b.toString();
+        }
+    }
+
+    private static class Status {
+        final long time;
+        final int status;
+        final Exception error;
+
+        Status(long time, int status, Exception error) {
+            this.time = time;
+            this.status = status;
+            this.error = error;
+        }
+
+        boolean isFresh(long now) {
+            long interval = error == null && status == 1 ? PROBE_INTERVAL : FAILURE_INTERVAL;
+            return now - time < interval;
+        }
+    }
+
+    /* STATUS checks of one broker; callers queue their CAS and one of them runs the round */
+    private static class StatusRounds {
+        private final String ip;
+        private final int port;
+        private final HashMap<String, Status> results = new HashMap<String, Status>();
+        private LinkedHashMap<String, Cas> queued = new LinkedHashMap<String, Cas>();
+        /* the round being checked, null if none */
+        private LinkedHashMap<String, Cas> running = null;
+
+        StatusRounds(String ip, int port) {
+            this.ip = ip;
+            this.port = port;
+        }
+
+        int status(Cas cas) throws IOException, UJciException {
+            long now = System.currentTimeMillis();
+            LinkedHashMap<String, Cas> round;
+
+            synchronized (this) {
+                while (true) {
+                    Status result = results.get(cas.key);
+                    if (result != null && result.isFresh(now)) {
+                        return report(result);
+                    }
+                    if (running == null) {
+                        queued.put(cas.key, cas);
+                        break;
+                    }
+                    if (!running.containsKey(cas.key)) {
+                        queued.put(cas.key, cas);
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new UJciException(UErrorCode.ER_COMMUNICATION, e);
+                    }
+                }
+
+                round = queued;
+                queued = new LinkedHashMap<String, Cas>();
+                running = round;
+            }
+
+            HashMap<String, Status> checked = new HashMap<String, Status>();
+            try {
+                checked = check(round);
+            } finally {
+                synchronized (this) {
+                    long time = System.currentTimeMillis();
+                    Iterator<Map.Entry<String, Status>> it = results.entrySet().iterator();
+                    while (it.hasNext()) {
+                        if (!it.next().getValue().isFresh(time)) {
+                            it.remove();
+                        }
+                    }
+                    results.putAll(checked);
+                    running = null;
+                    notifyAll();
+                }
+            }
+            return status(cas);
+        }
+
+        private HashMap<String, Status> check(LinkedHashMap<String, Cas> round) {
+            HashMap<String, Status> checked = new HashMap<String, Status>();
+            ArrayList<Cas> list = new ArrayList<Cas>(round.values());
+            for (int i = 0; i < list.size(); i++) {
+                Cas cas = list.get(i);
+                try {
+                    int status =
+                            BrokerHandler.statusBroker(
+                                    ip, port, cas.process, cas.session, cas.timeout);
+                    checked.put(cas.key, new Status(System.currentTimeMillis(), status, null));
+                } catch (IOException e) {
+                    failAll(checked, list, i, e);
+                    break;
+                } catch (UJciException e) {
+                    if (e.getJciError() == UErrorCode.ER_TIMEOUT) {
+                        failAll(checked, list, i, e);
+                        break;
+                    }
+                    checked.put(cas.key, new Status(System.currentTimeMillis(), 0, e));
+                }
+            }
+            return checked;
+        }
+
+        /* the broker is unreachable; the unchecked processes share the answer */
+        private static void failAll(
+                HashMap<String, Status> checked, ArrayList<Cas> list, int from, Exception e) {
+            Status failed = new Status(System.currentTimeMillis(), 0, e);
+            for (int i = from; i < list.size(); i++) {
+                checked.put(list.get(i).key, failed);
+            }
+        }
+
+        private static int report(Status result) throws IOException, UJciException {
+            if (result.error instanceof IOException) {
+                throw (IOException) result.error;
+            } else if (result.error instanceof UJciException) {
+                throw (UJciException) result.error;
+            }
+            return result.status;
+        }
+    }
+
+    private static int probe(String key, Callable<Integer> task)
+            throws IOException, UJciException {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep > SWEEP_INTERVAL) {
+            sweep(now);
+        }
+
+        Probe probe;
+        while (true) {
+            probe = probes.get(key);
+            if (probe != null && probe.isFresh(now)) {
+                break;
+            }
+
+            Probe newProbe = new Probe(task);
+            boolean installed;
+            if (probe == null) {
+                installed = probes.putIfAbsent(key, newProbe) == null;
+            } else {
+                installed = probes.replace(key, probe, newProbe);
+            }
+            if (installed) {
+                /* the thread that installs the probe sends the request */
+                newProbe.run();
+                probe = newProbe;
+                break;
+            }
+        }
+
+        try {
+            return probe.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UJciException(UErrorCode.ER_COMMUNICATION, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UJciException) {
+                throw (UJciException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new UJciException(UErrorCode.ER_COMMUNICATION, cause);
+        }
+    }
+
+    /* drops finished probes of brokers and CAS processes no longer waited on */
+    private static void sweep(long now) {
+        lastSweep = now;
+        Iterator<Map.Entry<String, Probe>> it = probes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Probe> entry = it.next();
+            if (!entry.getValue().isFresh(now)) {
+                probes.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
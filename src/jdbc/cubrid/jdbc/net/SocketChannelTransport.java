@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package cubrid.jdbc.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/*
+ * Transport over a non-blocking SocketChannel.
+ * Incoming data is read ahead into a direct buffer and requests are sent
+ * with gathering writes. Reads honor the SO_TIMEOUT of the socket and throw
+ * SocketTimeoutException like a classic socket stream does.
+ */
+public class SocketChannelTransport implements GatheringByteChannel {
+    private static final int READ_BUFFER_SIZE = 32 * 1024;
+
+    private final Socket socket;
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final ByteBuffer readBuffer;
+
+    private final InputStream in =
+            new InputStream() {
+                public int read() throws IOException {
+                    if (!fill()) {
+                        return -1;
+                    }
+                    return readBuffer.get() & 0xff;
+                }
+
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    if (!fill()) {
+                        return -1;
+                    }
+                    int n = Math.min(len, readBuffer.remaining());
+                    readBuffer.get(b, off, n);
+                    return n;
+                }
+
+                public int available() {
+                    return readBuffer.remaining();
+                }
+
+                public void close() throws IOException {
+                    SocketChannelTransport.this.close();
+                }
+            };
+
+    private final OutputStream out =
+            new OutputStream() {
+                public void write(int b) throws IOException {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                public void write(byte[] b, int off, int len) throws IOException {
+                    SocketChannelTransport.this.write(ByteBuffer.wrap(b, off, len));
+                }
+
+                public void close() throws IOException {
+                    SocketChannelTransport.this.close();
+                }
+            };
+
+    public SocketChannelTransport(Socket socket) throws IOException {
+        this.socket = socket;
+        channel = socket.getChannel();
+        if (channel == null) {
+            throw new IllegalArgumentException("socket is not bound to a channel");
+        }
+        channel.configureBlocking(false);
+        selector = Selector.open();
+        key = channel.register(selector, 0);
+        readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        readBuffer.flip();
+    }
+
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    /* makes sure readBuffer has data; returns false at end of stream */
+    private synchronized boolean fill() throws IOException {
+        if (readBuffer.hasRemaining()) {
+            return true;
+        }
+
+        readBuffer.clear();
+        try {
+            while (true) {
+                int n = channel.read(readBuffer);
+                if (n > 0) {
+                    return true;
+                }
+                if (n < 0) {
+                    return false;
+                }
+                if (!await(SelectionKey.OP_READ, socket.getSoTimeout())) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+            }
+        } finally {
+            readBuffer.flip();
+        }
+    }
+
+    private boolean await(int ops, int timeout) throws IOException {
+        try {
+            key.interestOps(ops);
+            try {
+                if (timeout > 0) {
+                    return selector.select(timeout) > 0;
+                }
+                selector.select();
+                return true;
+            } finally {
+                selector.selectedKeys().clear();
+            }
+        } catch (CancelledKeyException e) {
+            /* closed by another thread */
+            throw new ClosedChannelException();
+        } catch (ClosedSelectorException e) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    public synchronized int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            int n = channel.write(src);
+            if (n == 0) {
+                await(SelectionKey.OP_WRITE, 0);
+            }
+            written += n;
+        }
+        return written;
+    }
+
+    public synchronized long write(ByteBuffer[] srcs, int offset, int length)
+            throws IOException {
+        long written = 0;
+        int end = offset + length;
+        while (offset < end) {
+            long n = channel.write(srcs, offset, end - offset);
+            if (n == 0) {
+                await(SelectionKey.OP_WRITE, 0);
+            }
+            written += n;
+            while (offset < end && !srcs[offset].hasRemaining()) {
+                offset++;
+            }
+        }
+        return written;
+    }
+
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    public void close() throws IOException {
+        try {
+            selector.close();
+        } finally {
+            channel.close();
+        }
+    }
+}
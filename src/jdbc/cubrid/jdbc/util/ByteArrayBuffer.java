@@ -31,54 +31,80 @@
 
 package cubrid.jdbc.util;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 
 public class ByteArrayBuffer {
     private static final int UnitSize = 102400;
 
     private ArrayList<byte[]> byteArrayList;
+    private int[] segmentOffset;
+    private int[] segmentLength;
     private byte[] baseByteArray;
+    private ByteBuffer baseView;
     private byte[] buffer;
+    private ByteBuffer view;
+    private int bufStart;
     private int pos;
     private int dataSize;
 
     public ByteArrayBuffer() {
+        byteArrayList = new ArrayList<byte[]>();
+        segmentOffset = new int[4];
+        segmentLength = new int[4];
         baseByteArray = new byte[UnitSize];
+        baseView = ByteBuffer.wrap(baseByteArray);
         reset();
     }
 
     public void writeByte(byte v) {
-        write(v);
+        if (pos == UnitSize) {
+            nextChunk();
+        }
+        buffer[pos++] = v;
+        dataSize++;
     }
 
     public final void writeShort(int v) throws IOException {
-        write((v >>> 8) & 0xFF);
-        write((v >>> 0) & 0xFF);
+        if (UnitSize - pos < 2) {
+            write((v >>> 8) & 0xFF);
+            write((v >>> 0) & 0xFF);
+            return;
+        }
+        view.putShort(pos, (short) v);
+        pos += 2;
+        dataSize += 2;
     }
 
     public final void writeInt(int v) {
-        write((v >>> 24) & 0xFF);
-        write((v >>> 16) & 0xFF);
-        write((v >>> 8) & 0xFF);
-        write((v >>> 0) & 0xFF);
+        if (UnitSize - pos < 4) {
+            write((v >>> 24) & 0xFF);
+            write((v >>> 16) & 0xFF);
+            write((v >>> 8) & 0xFF);
+            write((v >>> 0) & 0xFF);
+            return;
+        }
+        view.putInt(pos, v);
+        pos += 4;
+        dataSize += 4;
     }
 
-    private byte writeBuffer[] = new byte[8];
-
     public final void writeLong(long v) {
-        writeBuffer[0] = (byte) (v >>> 56);
-        writeBuffer[1] = (byte) (v >>> 48);
-        writeBuffer[2] = (byte) (v >>> 40);
-        writeBuffer[3] = (byte) (v >>> 32);
-        writeBuffer[4] = (byte) (v >>> 24);
-        writeBuffer[5] = (byte) (v >>> 16);
-        writeBuffer[6] = (byte) (v >>> 8);
-        writeBuffer[7] = (byte) (v >>> 0);
-        write(writeBuffer, 0, 8);
+        if (UnitSize - pos < 8) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+            return;
+        }
+        view.putLong(pos, v);
+        pos += 8;
+        dataSize += 8;
     }
 
     public final void writeFloat(float v) throws IOException {
@@ -101,41 +127,136 @@ public class ByteArrayBuffer {
         } else if (len == 0) {
             return;
         }
-        for (int i = 0; i < len; i++) {
-            write(b[off + i]);
+
+        dataSize += len;
+        while (len > 0) {
+            if (pos == UnitSize) {
+                nextChunk();
+            }
+            int n = Math.min(len, UnitSize - pos);
+            System.arraycopy(b, off, buffer, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /*
+     * Writes (encoded length + 1), the string encoded into the chunks and a null byte.
+     * The length is patched after encoding. Returns the encoded length.
+     */
+    public int writeStringWithNull(String s, CharsetEncoder encoder, boolean asciiCompatible) {
+        if (UnitSize - pos < 4) {
+            nextChunk();
+        }
+        ByteBuffer lengthView = view;
+        int lengthPos = pos;
+        pos += 4;
+        dataSize += 4;
+
+        int start = dataSize;
+        int i = 0;
+        int len = s.length();
+        if (asciiCompatible) {
+            while (i < len) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                if (pos == UnitSize) {
+                    nextChunk();
+                }
+                buffer[pos++] = (byte) c;
+                i++;
+            }
+            dataSize += i;
+        }
+        if (i < len) {
+            encode(CharBuffer.wrap(s, i, len), encoder);
+        }
+
+        int encoded = dataSize - start;
+        lengthView.putInt(lengthPos, encoded + 1);
+        writeByte((byte) 0);
+        return encoded;
+    }
+
+    private void encode(CharBuffer in, CharsetEncoder encoder) {
+        encoder.reset();
+        boolean flushing = false;
+        while (true) {
+            if (pos == UnitSize) {
+                nextChunk();
+            }
+            ByteBuffer out = ByteBuffer.wrap(buffer, pos, UnitSize - pos);
+            CoderResult result = flushing ? encoder.flush(out) : encoder.encode(in, out, true);
+            dataSize += out.position() - pos;
+            pos = out.position();
+            if (result.isOverflow()) {
+                nextChunk();
+            } else if (!flushing) {
+                flushing = true;
+            } else {
+                break;
+            }
         }
     }
 
     private void write(int b) {
         if (pos == UnitSize) {
-            byteArrayList.add(buffer);
-            buffer = new byte[UnitSize];
-            pos = 0;
+            nextChunk();
         }
         buffer[pos] = (byte) b;
         pos++;
         dataSize++;
     }
 
-    public void merge(int size, ByteArrayBuffer buf) {
-        writeInt(size);
+    private void nextChunk() {
+        addSegment(buffer, bufStart, pos - bufStart);
+        setBuffer(new byte[UnitSize]);
+        bufStart = 0;
+        pos = 0;
+    }
 
-        byte[] dest = new byte[pos];
-        System.arraycopy(buffer, 0, dest, 0, pos);
-        byteArrayList.add(dest);
+    private void setBuffer(byte[] b) {
+        buffer = b;
+        /* big-endian view for word stores */
+        view = ByteBuffer.wrap(b);
+    }
 
-        Iterator<byte[]> i = buf.byteArrayList.iterator();
-        while (i.hasNext()) {
-            byte[] b = i.next();
-            byteArrayList.add(b);
+    private void addSegment(byte[] b, int off, int len) {
+        int n = byteArrayList.size();
+        if (n == segmentOffset.length) {
+            segmentOffset = Arrays.copyOf(segmentOffset, n * 2);
+            segmentLength = Arrays.copyOf(segmentLength, n * 2);
         }
+        byteArrayList.add(b);
+        segmentOffset[n] = off;
+        segmentLength[n] = len;
+    }
 
-        dest = new byte[buf.pos];
-        System.arraycopy(buf.buffer, 0, dest, 0, buf.pos);
-        byteArrayList.add(dest);
+    /*
+     * Appends the contents of buf without copying. buf must not be used
+     * afterwards since its chunks become part of this buffer.
+     */
+    public void merge(int size, ByteArrayBuffer buf) {
+        writeInt(size);
+        addSegment(buffer, bufStart, pos - bufStart);
 
-        buffer = new byte[UnitSize];
-        pos = 0;
+        /* skip the header space reserved at the beginning of buf */
+        int skip = 8;
+        for (int i = 0; i < buf.byteArrayList.size(); i++) {
+            addSegment(
+                    buf.byteArrayList.get(i),
+                    buf.segmentOffset[i] + skip,
+                    buf.segmentLength[i] - skip);
+            skip = 0;
+        }
+
+        buffer = buf.buffer;
+        view = buf.view;
+        bufStart = buf.bufStart + skip;
+        pos = buf.pos;
         dataSize += size;
     }
 
@@ -157,24 +278,45 @@ public class ByteArrayBuffer {
         header[7] = info[3];
     }
 
-    public void writeToStream(byte[] info, OutputStream o) throws IOException {
-        DataOutputStream os = new DataOutputStream(o);
+    public void writeToStream(byte[] info, OutputStream os) throws IOException {
         writeHeader(info);
 
-        Iterator<byte[]> i = byteArrayList.iterator();
-        while (i.hasNext()) {
-            byte[] b = i.next();
-            if (b != null) {
-                os.write(b);
+        for (int i = 0; i < byteArrayList.size(); i++) {
+            if (segmentLength[i] > 0) {
+                os.write(byteArrayList.get(i), segmentOffset[i], segmentLength[i]);
             }
         }
-        os.write(buffer, 0, pos);
+        os.write(buffer, bufStart, pos - bufStart);
         os.flush();
     }
 
+    /* sends the header and all chunks with gathering writes */
+    public void writeToChannel(byte[] info, GatheringByteChannel channel) throws IOException {
+        writeHeader(info);
+
+        int n = byteArrayList.size();
+        ByteBuffer[] segments = new ByteBuffer[n + 1];
+        for (int i = 0; i < n; i++) {
+            segments[i] = ByteBuffer.wrap(byteArrayList.get(i), segmentOffset[i], segmentLength[i]);
+        }
+        segments[n] = ByteBuffer.wrap(buffer, bufStart, pos - bufStart);
+
+        int first = 0;
+        while (first <= n) {
+            if (channel.write(segments, first, n + 1 - first) < 0) {
+                throw new IOException("channel closed");
+            }
+            while (first <= n && !segments[first].hasRemaining()) {
+                first++;
+            }
+        }
+    }
+
     public void reset() {
-        byteArrayList = new ArrayList<byte[]>();
+        byteArrayList.clear();
         buffer = baseByteArray;
+        view = baseView;
+        bufStart = 0;
         pos = 8;
         dataSize = 0;
     }